@@ -0,0 +1,156 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent the Adaptive Replacement Cache (ARC)
+ * Page Replacement Algorithm of Megiddo and Modha. Resident
+ * pages are split between two LRU lists: T1 holds pages seen
+ * once recently, T2 pages seen at least twice. Two ghost
+ * lists, B1 and B2, remember the page numbers (not the data)
+ * of pages recently evicted from T1 and T2. A fault on a
+ * ghost shows which list was evicted from too eagerly, and
+ * moves the adaptive target size p of T1 toward it. A scan
+ * only ever passes through T1, so it can not flush the hot
+ * pages in T2.
+ *
+ * T1 and T2 are kept over the frames of RAM and B1 and B2
+ * over a pool of RAMframes ghost slots, all as intrusive
+ * lists in one IndexLists, and each page's ghost slot is
+ * found through a per-page int array. Every access is O(1)
+ * and nothing is allocated.
+ *
+ * @author Steven Montalbano
+ */
+public class ARC extends PRA {
+
+	private static final int T1 = 0, T2 = 1, B1 = 2, B2 = 3; // The ARC lists
+	private static final int FREE = 4; 	// The unused ghost slots
+
+	private final IndexLists lists; 	// T1 and T2 over indices [0, RAMframes) = the frames of RAM, and B1, B2
+										// and FREE over indices [RAMframes, 2 * RAMframes) = the ghost slots
+	private final int[] ghostPage; 		// The page number remembered by each ghost slot
+	private final int[] ghostOf; 		// The ghost slot index remembering each page, or EMPTY
+	private int p; 						// The adaptive target size of T1
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public ARC(int frames, int pages) {
+		super(frames, pages);
+		this.name = "ARC";
+		this.lists = new IndexLists(2 * RAMframes, 5);
+		this.ghostPage = new int[RAMframes];
+		this.ghostOf = new int[PTpages];
+		this.p = 0;
+		Arrays.fill(ghostOf, EMPTY);
+		for (int slot = 0; slot < RAMframes; slot++)
+			lists.pushHead(FREE, RAMframes + slot);
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+		int frame; 	// The frame the faulting page is loaded into
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit; the page has now been seen twice
+				hit(index);
+				lists.moveToHead(T2, frameOf(index));
+
+			} else {
+				fault(index);
+				int ghost = ghostOf[index];
+
+				if (ghost != EMPTY) { 	// Ghost hit; RAM is full
+					boolean inB2 = lists.listOf(ghost) == B2;
+					int b1 = lists.size(B1), b2 = lists.size(B2);
+
+					if (inB2) 	// T2 was evicted from too eagerly, shrink the target of T1
+						p = Math.max(0, p - Math.max(1, b1 / b2));
+					else 		// T1 was evicted from too eagerly, grow the target of T1
+						p = Math.min(RAMframes, p + Math.max(1, b2 / b1));
+
+					forget(ghost);
+					frame = replace(inB2);
+					load(index, frame);
+					lists.pushHead(T2, frame);
+
+				} else { 				// A page ARC has no memory of
+					int t1 = lists.size(T1);
+
+					if (t1 + lists.size(B1) == RAMframes) {
+						if (t1 < RAMframes) {
+							forget(lists.tail(B1));
+							frame = replace(false);
+						} else { 	// B1 is empty, drop the LRU page of T1 without remembering it
+							frame = lists.popTail(T1);
+							evict(frame);
+						}
+					} else if (RAMhasRoom()) {
+						frame = usedFrames++;
+					} else {
+						if (t1 + lists.size(T2) + lists.size(B1) + lists.size(B2) == 2 * RAMframes)
+							forget(lists.tail(B2));
+						frame = replace(false);
+					}
+
+					load(index, frame);
+					lists.pushHead(T1, frame);
+				}
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to evict the LRU page of T1 or of T2, depending on how the
+	 * size of T1 compares to its target p, and remember it on the matching ghost
+	 * list. RAM must be full and a ghost slot must be free.
+	 *
+	 * @param inB2 true if the faulting page was found on B2
+	 * @return the frame that was freed
+	 */
+	private int replace(boolean inB2) {
+
+		long start = metrics.victimStart();
+		int t1 = lists.size(T1);
+		boolean fromT1 = t1 > 0 && ((inB2 && t1 == p) || t1 > p || lists.size(T2) == 0);
+		int frame = lists.popTail(fromT1 ? T1 : T2);
+		metrics.victimChosen(start);
+
+		int victim = evict(frame); 	// Write the victim back to disk if dirty and unmap it from RAM
+
+		int ghost = lists.popTail(FREE);
+		ghostPage[ghost - RAMframes] = victim;
+		ghostOf[victim] = ghost;
+		lists.pushHead(fromT1 ? B1 : B2, ghost);
+		return frame;
+	}
+
+	/**
+	 * Helper function to drop a page from its ghost list and free its slot
+	 *
+	 * @param ghost the ghost slot index
+	 */
+	private void forget(int ghost) {
+		lists.remove(ghost);
+		ghostOf[ghostPage[ghost - RAMframes]] = EMPTY;
+		lists.pushHead(FREE, ghost);
+	}
+}
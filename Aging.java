@@ -0,0 +1,229 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent the Aging Page Replacement Algorithm,
+ * the software approximation of LRU built from nothing but the
+ * hardware reference bit. Every frame has a small counter.
+ * Every K memory accesses a clock tick shifts each counter
+ * right by one and shifts the frame's reference bit in at the
+ * top, then clears the reference bits, so a counter is a
+ * history of the last few ticks with the most recent one
+ * weighing the most. The victim is the page with the smallest
+ * counter. Unlike NFU, which only ever adds the reference bits
+ * up, old references fade out.
+ *
+ * The counters are 8, 16 or 32 bits wide and packed into longs,
+ * 8, 4 or 2 to a word, with the reference bits kept in a second
+ * array of longs at the top bit of each counter's lane. A tick
+ * ages a whole word of counters with one shift, mask and or,
+ * in a branch free loop the JIT can vectorize. Hits only set a
+ * bit.
+ *
+ * Counters only change on a tick, so each tick also radix
+ * sorts the frames by counter, a byte at a time. Until the
+ * next tick, the victim is the next frame in that order whose
+ * reference bit is still clear: a page referenced since the
+ * tick, including every page loaded since, counts as newer
+ * than any counter. Faults cost O(1) amortized instead of a
+ * scan over RAM, and a tick costs O(frames) per byte of
+ * counter.
+ *
+ * @author Steven Montalbano
+ */
+public class Aging extends PRA {
+
+	public static final int DEFAULT_BITS = 8; // The default counter width
+
+	private final int bits; 		// The width of each counter
+	private final int laneShift; 	// log2 of the number of counters per long
+	private final long valueMask; 	// The bits of one counter, in the lowest lane
+	private final long topBits; 	// The top bit of every lane of a word
+	private final long[] counters; 	// The counter of each frame of RAM, packed 64 / bits to a word
+	private final long[] refs; 		// The reference bit of each frame at the top bit of its lane
+	private final long tick; 		// The number of memory accesses between clock ticks
+	private long sinceTick; 		// The number of memory accesses since the last clock tick
+	private int[] order, spare; 	// The frames sorted by counter as of the last tick, and a scratch array
+	private final int[] buckets; 	// The radix sort bucket offsets
+	private int cursor; 			// The next position in order to look for a victim at, or RAMframes before
+									// the first tick
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 * @param bits   the width of each counter: 8, 16 or 32
+	 * @param tick   the number of memory accesses between clock ticks
+	 */
+	public Aging(int frames, int pages, int bits, long tick) {
+		super(frames, pages);
+		if (bits != 8 && bits != 16 && bits != 32)
+			throw new IllegalArgumentException("The counter width must be 8, 16 or 32 bits");
+		if (tick < 1)
+			throw new IllegalArgumentException("The tick interval must be positive");
+
+		this.name = "AGING";
+		this.bits = bits;
+		this.laneShift = Integer.numberOfTrailingZeros(64 / bits);
+		this.valueMask = (1L << bits) - 1;
+
+		long top = 0;
+		for (int lane = 0; lane < 64 / bits; lane++)
+			top |= 1L << (lane * bits + bits - 1);
+		this.topBits = top;
+
+		int words = (RAMframes + (64 / bits) - 1) >>> laneShift;
+		this.counters = new long[words];
+		this.refs = new long[words];
+		this.tick = tick;
+		this.order = new int[RAMframes];
+		this.spare = new int[RAMframes];
+		this.buckets = new int[257];
+		this.cursor = RAMframes;
+	}
+
+	/**
+	 * Ages with 8 bit counters and a clock tick every RAMframes accesses
+	 *
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public Aging(int frames, int pages) {
+		this(frames, pages, DEFAULT_BITS, frames);
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit
+				hit(index);
+				reference(frameOf(index));
+
+			} else { 	// Page Fault
+				fault(index);
+
+				int frame;
+				if (RAMhasRoom()) {
+					frame = usedFrames++;
+				} else {
+					long start = metrics.victimStart();
+					frame = oldest();
+					metrics.victimChosen(start);
+					evict(frame);
+				}
+
+				load(index, frame);
+				int shift = (frame & ((1 << laneShift) - 1)) * bits;
+				counters[frame >>> laneShift] &= ~(valueMask << shift); // A new page has no history,
+				reference(frame); 										// but was just referenced
+			}
+
+			if (++sinceTick == tick) {
+				age();
+				sort();
+				sinceTick = 0;
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to set the reference bit of a frame
+	 *
+	 * @param frame the frame number
+	 */
+	private void reference(int frame) {
+		refs[frame >>> laneShift] |= 1L << ((frame & ((1 << laneShift) - 1)) * bits + bits - 1);
+	}
+
+	/**
+	 * Helper function for the clock tick: shifts every counter right by one with
+	 * its reference bit in at the top, then clears the reference bits. The bit
+	 * shifted out of the bottom of each lane would land on the top bit of the
+	 * lane below, so the top bits are masked off before the reference bits are
+	 * or'ed in.
+	 */
+	private void age() {
+		final long keep = ~topBits;
+		for (int w = 0; w < counters.length; w++) {
+			counters[w] = ((counters[w] >>> 1) & keep) | refs[w];
+			refs[w] = 0;
+		}
+	}
+
+	/**
+	 * Helper function to radix sort the frames by counter into order, least
+	 * significant byte first; each pass is a stable counting sort.
+	 */
+	private void sort() {
+		int lanes = 1 << laneShift;
+
+		for (int f = 0; f < RAMframes; f++)
+			order[f] = f;
+
+		for (int byteShift = 0; byteShift < bits; byteShift += 8) {
+			Arrays.fill(buckets, 0);
+			for (int f = 0; f < RAMframes; f++)
+				buckets[counterByte(order[f], lanes, byteShift) + 1]++;
+			for (int b = 1; b < buckets.length; b++)
+				buckets[b] += buckets[b - 1];
+			for (int f = 0; f < RAMframes; f++)
+				spare[buckets[counterByte(order[f], lanes, byteShift)]++] = order[f];
+
+			int[] t = order;
+			order = spare;
+			spare = t;
+		}
+		cursor = 0;
+	}
+
+	/**
+	 * @return one byte of the counter of a frame, as of the last tick
+	 */
+	private int counterByte(int frame, int lanes, int byteShift) {
+		return (int) (counters[frame >>> laneShift] >>> ((frame & (lanes - 1)) * bits + byteShift)) & 0xFF;
+	}
+
+	/**
+	 * Helper function to find the victim: the next frame in counter order that
+	 * has not been referenced since the last tick, or, if every frame has been,
+	 * the frame with the smallest counter. RAM must be full.
+	 *
+	 * @return the frame of the victim
+	 */
+	private int oldest() {
+		while (cursor < RAMframes) {
+			int frame = order[cursor++];
+			if ((refs[frame >>> laneShift] & (1L << ((frame & ((1 << laneShift) - 1)) * bits + bits - 1))) == 0)
+				return frame;
+		}
+
+		int lanes = 1 << laneShift; // Every frame was referenced since the last tick; scan the counters
+		int victim = 0;
+		long best = Long.MAX_VALUE;
+		for (int frame = 0; frame < RAMframes; frame++) {
+			long key = (counters[frame >>> laneShift] >>> ((frame & (lanes - 1)) * bits)) & valueMask;
+			if (key < best) {
+				best = key;
+				victim = frame;
+			}
+		}
+		return victim;
+	}
+}
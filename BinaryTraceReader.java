@@ -0,0 +1,135 @@
+import java.io.IOException;
+
+/**
+ * Reads the memory accesses of a binary trace file written by TraceWriter.
+ * The records are decoded straight out of TraceReader's reusable buffer, so
+ * binary traces can be streamed or memory mapped the same as text traces and
+ * are read without any hex parsing.
+ *
+ * @see TraceWriter.java
+ * @author Steven Montalbano
+ */
+public class BinaryTraceReader extends TraceReader {
+
+	private final boolean delta; 	// Are the records delta/varint encoded?
+	private final long count; 		// The number of memory accesses in the file
+	private long remaining; 		// The number of memory accesses not yet decoded
+	private long previous; 			// The page number of the previous memory access, for delta decoding
+	private final int fileShift; 	// The page shift the records were written with
+	private int extraShift; 		// The offset bits dropped from each record on top of the file's
+
+	/**
+	 * Opens a binary trace file for reading and checks its header. The pages are
+	 * the size the file was written with unless setPageShift makes them larger.
+	 *
+	 * @param traceFile the name of the binary trace file
+	 * @param mapped    true to memory map the file instead of streaming it
+	 * @throws IOException if the file can not be opened or its header is invalid
+	 */
+	public BinaryTraceReader(String traceFile, boolean mapped) throws IOException {
+		super(traceFile, mapped);
+
+		for (byte b : TraceWriter.MAGIC)
+			if (read() != b)
+				throw new IOException(traceFile + " is not a binary trace file");
+
+		int version = read();
+		int flags = read();
+		int pageShift = read();
+		read(); // Reserved
+
+		if (version != TraceWriter.VERSION)
+			throw new IOException(String.format("Unsupported binary trace version %d", version));
+		if (pageShift < MIN_PAGE_SHIFT || pageShift > MAX_PAGE_SHIFT)
+			throw new IOException(String.format("Unsupported page shift %d", pageShift));
+
+		long n = 0;
+		for (int i = 0; i < 8; i++)
+			n = (n << 8) | readByte();
+
+		this.delta = (flags & TraceWriter.FLAG_DELTA) != 0;
+		this.count = this.remaining = n;
+		this.previous = 0;
+		this.fileShift = this.pageShift = pageShift;
+	}
+
+	/**
+	 * The records only hold page numbers, so pages can be made larger than the
+	 * file's but not smaller.
+	 */
+	@Override
+	public void setPageShift(int shift) throws IOException {
+		if (shift < fileShift)
+			throw new IOException(String.format("The binary trace holds %d byte pages, it can not be split into smaller ones",
+					1L << fileShift));
+		super.setPageShift(shift);
+		this.extraShift = shift - fileShift;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+
+		if (remaining == 0)
+			return false;
+
+		long value;
+
+		if (delta) {
+			value = 0;
+			int shift = 0;
+			int b;
+			do {
+				if (shift > 63)
+					throw malformed("varint is too long");
+				b = readByte();
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+
+			long diff = value >>> 1;
+			previous += (diff >>> 1) ^ -(diff & 1); // Undo the zig-zag encoding
+			vpn = previous;
+
+		} else if (limit - pos >= 4) { // Fast path, the whole record is in the buffer
+			value = ((buf[pos] & 0xFF) << 24) | ((buf[pos + 1] & 0xFF) << 16) | ((buf[pos + 2] & 0xFF) << 8)
+					| (buf[pos + 3] & 0xFF);
+			pos += 4;
+			vpn = (value & 0xFFFFFFFFL) >>> 1;
+
+		} else {
+			value = (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+			vpn = (value & 0xFFFFFFFFL) >>> 1;
+		}
+
+		store = (value & 1) != 0;
+		lineNum++;
+		vpn >>>= extraShift;
+		page = translate(vpn);
+		remaining--;
+		return true;
+	}
+
+	/**
+	 * @return the number of memory accesses in the file, from its header
+	 */
+	@Override
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * @return the next byte of the file
+	 * @throws IOException if the file ends before the access count in its header
+	 */
+	private int readByte() throws IOException {
+		int b = read();
+		if (b == -1)
+			throw malformed("file is truncated");
+		return b;
+	}
+
+	@Override
+	protected IOException malformed(String reason) {
+		return new IOException(String.format("Malformed binary trace record %d: %s", lineNum + 1, reason));
+	}
+}
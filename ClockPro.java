@@ -0,0 +1,332 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent the CLOCK-Pro Page Replacement
+ * Algorithm of Jiang, Chen and Zhang, the clock based
+ * approximation of LIRS. Like Second Chance, every page sits
+ * on one circular list swept by clock hands with a reference
+ * bit per frame, but each page is also hot or cold, and a
+ * cold page has a test period during which a reuse makes it
+ * hot. Non-resident cold pages in their test period stay on
+ * the clock as metadata, up to one per frame. Three hands
+ * share the clock:
+ *
+ *   HAND_cold finds the victim: the first resident cold page
+ *   with a clear reference bit. A referenced cold page in its
+ *   test period turns hot; otherwise it starts a new test
+ *   period. Either way it moves to the list head.
+ *
+ *   HAND_hot turns the first unreferenced hot page cold once
+ *   there are too many hot pages, and ends the test period of
+ *   every cold page it passes.
+ *
+ *   HAND_test ends test periods to make room once there are
+ *   as many non-resident pages as frames.
+ *
+ * The number of frames for cold pages adapts: it grows by one
+ * when a cold page is reused in its test period and shrinks by
+ * one when a test period ends without a reuse. New pages are
+ * inserted at the list head, just behind HAND_hot.
+ *
+ * The clock is an intrusive circular list in int arrays over
+ * the frames of RAM and a pool of RAMframes slots for the
+ * non-resident pages, and the reference bits are packed 64 to
+ * a word like in SecondChance. Every access is O(1)
+ * amortized and nothing is allocated.
+ *
+ * @see SecondChance.java, LIRS.java
+ * @author Steven Montalbano
+ */
+public class ClockPro extends PRA {
+
+	private static final byte HOT = 1; 	// Is the page hot?
+	private static final byte TEST = 2; // Is the cold page in its test period?
+
+	private final int[] next, prev; 	// The circular list over indices [0, RAMframes) = the frames of RAM and
+										// [RAMframes, 2 * RAMframes) = the non-resident slots
+	private final byte[] status; 		// The HOT and TEST bits of each index
+	private final long[] refBits; 		// The reference bit of each frame of RAM, packed 64 frames to a word
+	private final int[] ghostPage; 		// The page number remembered by each non-resident slot
+	private final int[] ghostOf; 		// The non-resident slot index remembering each page, or EMPTY
+	private final int[] freeSlots; 		// A stack of the unused non-resident slot indices
+	private int freeCount; 				// The number of unused non-resident slots
+	private int handHot, handCold, handTest; // The clock hands, or EMPTY while the clock is empty
+	private int hotCount; 				// The number of hot pages
+	private int coldTarget; 			// The adaptive number of frames for cold pages
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public ClockPro(int frames, int pages) {
+		super(frames, pages);
+		this.name = "CLOCKPRO";
+		this.next = new int[2 * RAMframes];
+		this.prev = new int[2 * RAMframes];
+		this.status = new byte[2 * RAMframes];
+		this.refBits = new long[(RAMframes + 63) >>> 6];
+		this.ghostPage = new int[RAMframes];
+		this.ghostOf = new int[PTpages];
+		this.freeSlots = new int[RAMframes];
+		this.handHot = this.handCold = this.handTest = EMPTY;
+		this.hotCount = 0;
+		this.coldTarget = Math.max(1, RAMframes / 100); // Start out like LIRS, then adapt
+		Arrays.fill(ghostOf, EMPTY);
+		for (int slot = 0; slot < RAMframes; slot++)
+			freeSlots[freeCount++] = RAMframes + slot;
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit, only the reference bit is set
+				hit(index);
+				int frame = frameOf(index);
+				refBits[frame >>> 6] |= 1L << frame;
+
+			} else { 	// Page Fault
+				fault(index);
+
+				int frame;
+				if (RAMhasRoom()) {
+					frame = usedFrames++;
+				} else {
+					long start = metrics.victimStart();
+					frame = runHandCold();
+					metrics.victimChosen(start);
+				}
+
+				load(index, frame);
+				refBits[frame >>> 6] &= ~(1L << frame);
+				int ghost = ghostOf[index];
+
+				if (ghost != EMPTY) { 	// Reused in its test period, the page comes back hot
+					forget(ghost);
+					coldTarget = Math.min(RAMframes, coldTarget + 1);
+					status[frame] = HOT;
+					hotCount++;
+					insertHead(frame);
+					while (hotCount > RAMframes - coldTarget)
+						runHandHot();
+				} else { 				// A new cold page starts its test period
+					status[frame] = TEST;
+					insertHead(frame);
+				}
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// The three hands
+
+	/**
+	 * Helper function that advances HAND_cold to the first resident cold page
+	 * with a clear reference bit and evicts it. RAM must be full.
+	 *
+	 * @return the frame that was freed
+	 */
+	private int runHandCold() {
+		while (true) {
+			int node = handCold;
+
+			if (node >= RAMframes || (status[node] & HOT) != 0) { // Only resident cold pages are candidates
+				handCold = next[node];
+				continue;
+			}
+
+			long bit = 1L << node;
+			if ((refBits[node >>> 6] & bit) != 0) { // Referenced; no victim, and the page moves to the head
+				refBits[node >>> 6] &= ~bit;
+				unlink(node);
+
+				if ((status[node] & TEST) != 0) { 	// Reused in its test period, the page turns hot
+					status[node] = HOT;
+					hotCount++;
+					coldTarget = Math.min(RAMframes, coldTarget + 1);
+					insertHead(node);
+					while (hotCount > RAMframes - coldTarget)
+						runHandHot();
+				} else { 							// Give it a new test period
+					status[node] = TEST;
+					insertHead(node);
+				}
+				continue;
+			}
+
+			handCold = next[node]; 	// The victim; unreferenced and cold
+			boolean test = (status[node] & TEST) != 0;
+			int victim = evict(node);
+			status[node] = 0;
+
+			if (test) { 	// Keep it on the clock as a non-resident page until its test period ends
+				if (freeCount == 0)
+					runHandTest();
+				int ghost = freeSlots[--freeCount];
+				ghostPage[ghost - RAMframes] = victim;
+				ghostOf[victim] = ghost;
+				status[ghost] = TEST;
+				replace(node, ghost);
+			} else {
+				unlink(node);
+			}
+			return node;
+		}
+	}
+
+	/**
+	 * Helper function that advances HAND_hot to the first unreferenced hot page
+	 * and turns it cold, ending the test periods of the cold pages it passes.
+	 * There must be a hot page.
+	 */
+	private void runHandHot() {
+		while (true) {
+			int node = handHot;
+			int after = next[node];
+
+			if ((status[node] & HOT) != 0) {
+				long bit = 1L << node;
+				handHot = after;
+				if ((refBits[node >>> 6] & bit) != 0) { // Referenced; it stays hot
+					refBits[node >>> 6] &= ~bit;
+					continue;
+				}
+				status[node] = 0; 	// Turn it cold, with no test period
+				hotCount--;
+				return;
+			}
+
+			if ((status[node] & TEST) != 0)
+				endTest(node);
+			handHot = after;
+		}
+	}
+
+	/**
+	 * Helper function that advances HAND_test to the first non-resident page and
+	 * drops it, ending the test periods of the cold pages it passes. There must
+	 * be a non-resident page.
+	 */
+	private void runHandTest() {
+		while (true) {
+			int node = handTest;
+			int after = next[node];
+
+			if ((status[node] & TEST) != 0)
+				endTest(node);
+			handTest = after;
+
+			if (node >= RAMframes)
+				return;
+		}
+	}
+
+	// Helper Methods
+
+	/**
+	 * Helper function to end the test period of a cold page without a reuse,
+	 * shrinking the number of frames for cold pages. A non-resident page is
+	 * dropped from the clock.
+	 *
+	 * @param node the index of the cold page
+	 */
+	private void endTest(int node) {
+		coldTarget = Math.max(1, coldTarget - 1);
+		if (node >= RAMframes)
+			forget(node);
+		else
+			status[node] &= ~TEST;
+	}
+
+	/**
+	 * Helper function to drop a non-resident page from the clock and free its
+	 * slot
+	 *
+	 * @param ghost the non-resident slot index
+	 */
+	private void forget(int ghost) {
+		unlink(ghost);
+		status[ghost] = 0;
+		ghostOf[ghostPage[ghost - RAMframes]] = EMPTY;
+		freeSlots[freeCount++] = ghost;
+	}
+
+	/**
+	 * Helper function to insert an index at the list head, just behind HAND_hot
+	 *
+	 * @param node an index that is not on the clock
+	 */
+	private void insertHead(int node) {
+		if (handHot == EMPTY) {
+			next[node] = prev[node] = node;
+			handHot = handCold = handTest = node;
+			return;
+		}
+		int before = prev[handHot];
+		next[before] = node;
+		prev[node] = before;
+		next[node] = handHot;
+		prev[handHot] = node;
+	}
+
+	/**
+	 * Helper function to unlink an index from the clock, moving every hand that
+	 * points to it on to the next index
+	 *
+	 * @param node an index on the clock
+	 */
+	private void unlink(int node) {
+		int after = next[node];
+		if (after == node) { // The last index on the clock
+			handHot = handCold = handTest = EMPTY;
+			return;
+		}
+		next[prev[node]] = after;
+		prev[after] = prev[node];
+		if (handHot == node)
+			handHot = after;
+		if (handCold == node)
+			handCold = after;
+		if (handTest == node)
+			handTest = after;
+	}
+
+	/**
+	 * Helper function to put an index that is not on the clock in the place of
+	 * one that is, along with every hand that points to it
+	 *
+	 * @param node an index on the clock
+	 * @param with the index taking its place
+	 */
+	private void replace(int node, int with) {
+		if (next[node] == node) {
+			next[with] = prev[with] = with;
+		} else {
+			next[with] = next[node];
+			prev[with] = prev[node];
+			prev[next[node]] = with;
+			next[prev[node]] = with;
+		}
+		if (handHot == node)
+			handHot = with;
+		if (handCold == node)
+			handCold = with;
+		if (handTest == node)
+			handTest = with;
+	}
+}
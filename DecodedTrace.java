@@ -0,0 +1,195 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A whole trace decoded into memory as one packed int per memory access,
+ * (page id << 1) | store bit, along with the RadixPageTable of the reader it
+ * was decoded from. Algorithms that need to look at the trace
+ * more than once, or backwards, decode it into a DecodedTrace once instead of
+ * reading over the file again.
+ *
+ * A DecodedTrace is read-only once built, so one instance can be shared by
+ * any number of simulations running at the same time, each replaying it
+ * through its own reader().
+ *
+ * @author Steven Montalbano
+ */
+public class DecodedTrace {
+
+	public static final int NEVER = -1; // Marks a memory access whose page is never accessed again in the future
+	public static final int MAX_PAGES = 1 << 30; // The most distinct pages a packed memory access can hold
+	private static final int MAX_LENGTH = Integer.MAX_VALUE - 8; // The most memory accesses an int array can hold
+
+	private final int[] accesses; 	// Every memory access packed as (page number << 1) | store bit
+	private final int length; 		// The number of memory accesses
+	private int[] nextUse; 			// The cached result of nextUse(pages), computed on first use
+
+	private final RadixPageTable radix; // Maps the page ids back to virtual page numbers, or null
+	private final int pageShift; 		// The number of offset bits of a page of the trace
+
+	private DecodedTrace(int[] accesses, int length, RadixPageTable radix, int pageShift) {
+		this.accesses = accesses;
+		this.length = length;
+		this.radix = radix;
+		this.pageShift = pageShift;
+	}
+
+	/**
+	 * Decodes every memory access of a trace into memory
+	 *
+	 * @param trace the TraceReader tied to the trace file
+	 * @return the decoded trace
+	 * @throws IOException if the trace can not be read, has a malformed line, or
+	 *                     has too many memory accesses or distinct pages to pack
+	 */
+	public static DecodedTrace read(TraceReader trace) throws IOException {
+
+		int capacity = trace.size() > 0 ? (int) Math.min(trace.size(), MAX_LENGTH) : 1 << 16;
+		int[] accesses = new int[capacity];	// Binary traces know their length up front, text traces grow the array
+		int n = 0;
+
+		while (trace.next()) {
+			if (n == accesses.length) { // Grow the array by doubling
+				if (n == MAX_LENGTH)
+					throw new IOException(String.format(
+							"The trace has more than %d memory accesses, too many to decode into memory", MAX_LENGTH));
+				accesses = Arrays.copyOf(accesses, (int) Math.min(n * 2L, MAX_LENGTH));
+			}
+			if (trace.page() >= MAX_PAGES)
+				throw new IOException(String.format(
+						"The trace touches more than %d distinct pages, too many to decode into memory", MAX_PAGES));
+
+			accesses[n++] = (trace.page() << 1) | (trace.isStore() ? 1 : 0);
+		}
+		return new DecodedTrace(accesses, n, trace.radixTable(), trace.pageShift());
+	}
+
+	/**
+	 * Returns the decoded trace behind a reader: the trace itself if the reader
+	 * is a fresh reader() of a DecodedTrace, otherwise a new DecodedTrace read
+	 * from it.
+	 *
+	 * @param trace the TraceReader tied to the trace
+	 * @return the decoded trace
+	 * @throws IOException if the trace can not be read or has a malformed line
+	 */
+	public static DecodedTrace of(TraceReader trace) throws IOException {
+		if (trace instanceof Reader && ((Reader) trace).next == 0)
+			return ((Reader) trace).source();
+		return read(trace);
+	}
+
+	/**
+	 * @return a new TraceReader that replays this trace from the start
+	 */
+	public TraceReader reader() {
+		return new Reader();
+	}
+
+	/**
+	 * @return the number of memory accesses in the trace
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @param i the line number of a memory access
+	 * @return the memory access packed as (page number << 1) | store bit
+	 */
+	public int get(int i) {
+		return accesses[i];
+	}
+
+	/**
+	 * Returns the line number of the next access to the same page as every memory
+	 * access of the trace. The array is computed once and shared by every caller,
+	 * so it must not be modified.
+	 *
+	 * @param pages the size of the Page Table
+	 * @return nextUse[i] = the line number the page of access i is next accessed
+	 *         at, or NEVER
+	 */
+	public synchronized int[] nextUse(int pages) {
+		if (nextUse == null)
+			nextUse = computeNextUse(pages);
+		return nextUse;
+	}
+
+	/**
+	 * Computes the next-use array in a single backward pass over the trace,
+	 * without caching it.
+	 *
+	 * @param pages the size of the Page Table
+	 * @return the next-use array
+	 * @see #nextUse(int)
+	 */
+	int[] computeNextUse(int pages) {
+
+		int[] seen = new int[pages]; // The line number each page is next accessed at, as of the current line
+		int[] nextUse = new int[length];
+		Arrays.fill(seen, NEVER);
+
+		for (int i = length - 1; i >= 0; i--) { // Walk the trace backwards
+			int index = accesses[i] >>> 1;
+			nextUse[i] = seen[index];
+			seen[index] = i;
+		}
+		return nextUse;
+	}
+
+	/**
+	 * Computes the OPT priority key of a page right after it is accessed: the
+	 * line number of its next access. Pages that are never accessed again get
+	 * keys above every line number, larger the longer ago they were used, so that
+	 * ties between them follow the LRU heuristic deterministically. A larger key
+	 * means a better victim.
+	 *
+	 * @param nextUse the next use of the memory access, or NEVER
+	 * @param line    the line number of the memory access
+	 * @return the key
+	 */
+	public static long futureKey(long nextUse, long line) {
+		return nextUse == NEVER ? Long.MAX_VALUE - line : nextUse;
+	}
+
+	/**
+	 * A TraceReader over the decoded trace with its own position, so that several
+	 * simulations can replay the same trace at once.
+	 */
+	private class Reader extends TraceReader {
+
+		private int next; // The index of the next memory access to decode
+
+		private Reader() {
+			this.radix = DecodedTrace.this.radix;
+			this.pageShift = DecodedTrace.this.pageShift;
+		}
+
+		@Override
+		public boolean next() {
+			if (next == length)
+				return false;
+
+			int access = accesses[next++];
+			page = access >>> 1;
+			store = (access & 1) != 0;
+			lineNum = next;
+			return true;
+		}
+
+		@Override
+		public long size() {
+			return length;
+		}
+
+		@Override
+		public long vpn() {
+			return radix == null ? page : radix.vpnOf(page);
+		}
+
+		private DecodedTrace source() {
+			return DecodedTrace.this;
+		}
+	}
+}
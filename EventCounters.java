@@ -0,0 +1,54 @@
+/**
+ * A SimulationListener that counts every kind of event. Its totals match the
+ * counters of the PRA it listens to, and are kept separately so a listener
+ * attached partway through a run, or shared by several runs, can still be
+ * read on its own.
+ *
+ * @author Steven Montalbano
+ */
+public class EventCounters implements SimulationListener {
+
+	private long hits, faults, evictions, writeBacks; // The number of each kind of event
+
+	@Override
+	public void hit(long line, int space, long page, int order, int frame) {
+		hits++;
+	}
+
+	@Override
+	public void fault(long line, int space, long page, int order) {
+		faults++;
+	}
+
+	@Override
+	public void evict(long line, int space, long page, int order, int frame, boolean dirty) {
+		evictions++;
+	}
+
+	@Override
+	public void writeBack(long line, int space, long page, int order) {
+		writeBacks++;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getFaults() {
+		return faults;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public long getWriteBacks() {
+		return writeBacks;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Hits: %d\nFaults: %d\nEvictions: %d\nWrite backs: %d\n", hits, faults, evictions,
+				writeBacks);
+	}
+}
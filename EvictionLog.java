@@ -0,0 +1,83 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A SimulationListener that streams every eviction to a binary log file
+ * through one fixed size buffer, so the log can grow to any length without
+ * growing the heap. The file starts with the 4 byte magic number "VMEV" and a
+ * 4 byte version, followed by one 28 byte big endian record per eviction:
+ *
+ * <pre>
+ * offset  size  field
+ * 0       8     line number of the memory access that caused the eviction
+ * 8       4     address space of the victim, the process in order of first access
+ * 12      8     page number of the victim, in pages of its size
+ * 20      4     order of the victim, log2 of the base pages it spans, 0 for a base page
+ * 24      4     (frame number << 1) | dirty bit, the frame is -1 for a huge page
+ * </pre>
+ *
+ * @author Steven Montalbano
+ */
+public class EvictionLog implements SimulationListener, Closeable {
+
+	public static final byte[] MAGIC = { 'V', 'M', 'E', 'V' };
+	public static final int VERSION = 1;
+	public static final int RECORD_SIZE = 28;
+
+	private final FileChannel channel; 	// The log file
+	private final ByteBuffer out; 		// The reusable write buffer
+
+	/**
+	 * Creates an eviction log file, replacing it if it exists
+	 *
+	 * @param logFile the name of the log file
+	 * @throws IOException if the file can not be created
+	 */
+	public EvictionLog(String logFile) throws IOException {
+		this.channel = FileChannel.open(Paths.get(logFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.out = ByteBuffer.allocate(TraceReader.BUFFER_SIZE);
+		out.put(MAGIC).putInt(VERSION);
+	}
+
+	/**
+	 * Appends an eviction record. Listener callbacks can not throw checked
+	 * exceptions, so a failed write is rethrown unchecked.
+	 */
+	@Override
+	public void evict(long line, int space, long page, int order, int frame, boolean dirty) {
+		if (out.remaining() < RECORD_SIZE)
+			flush();
+		out.putLong(line).putInt(space).putLong(page).putInt(order).putInt((frame << 1) | (dirty ? 1 : 0));
+	}
+
+	private void flush() {
+		try {
+			out.flip();
+			while (out.hasRemaining())
+				channel.write(out);
+			out.clear();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Flushes the remaining records and closes the file
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			channel.close();
+		}
+	}
+}
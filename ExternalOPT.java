@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * An external-memory version of the Optimal Page Replacement
+ * Algorithm for traces too large to hold in memory. It picks
+ * exactly the same victims as OPT, but never materializes the
+ * trace or its next-use array on the heap:
+ * 
+ *   1. A forward pass streams the trace into a spill file of
+ *      packed (page number << 1) | store bit records.
+ *   2. A reverse pass reads that file back to front in
+ *      chunks and writes the line number of the next access
+ *      of every memory access to a second spill file.
+ *   3. A forward pass streams both spill files side by side
+ *      and runs the simulation with the same max-heap of
+ *      frames as OPT.
+ * 
+ * Every pass uses fixed size buffers, so peak heap is the
+ * frame heap plus one next-access slot per page of the Page
+ * Table, independent of the trace length. The spill files
+ * are created in java.io.tmpdir and deleted when the
+ * simulation ends.
+ * 
+ * @see OPT.java
+ * @author Steven Montalbano
+ */
+public class ExternalOPT extends PRA {
+
+	private static final int CHUNK = 1 << 16; 	// The number of memory accesses per spill file buffer
+	private static final long NEVER = DecodedTrace.NEVER; // Marks a memory access whose page is never accessed again
+
+	private final FrameHeap heap; 		// Max-heap of the frames of RAM keyed by when their page is next accessed
+	private final ByteBuffer pageBuf; 	// Reusable buffer of packed page records
+	private final ByteBuffer nextBuf; 	// Reusable buffer of next-use line numbers
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public ExternalOPT(int frames, int pages) {
+		super(frames, pages);
+		this.name = "OPT";
+		this.heap = new FrameHeap(RAMframes);
+		this.pageBuf = ByteBuffer.allocate(CHUNK * Integer.BYTES);
+		this.nextBuf = ByteBuffer.allocate(CHUNK * Long.BYTES);
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		Path pagesFile = Files.createTempFile("vmsim", ".pages");
+		Path nextFile = Files.createTempFile("vmsim", ".next");
+
+		try (FileChannel pages = FileChannel.open(pagesFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.DELETE_ON_CLOSE);
+				FileChannel next = FileChannel.open(nextFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+						StandardOpenOption.DELETE_ON_CLOSE)) {
+
+			metrics.phase(RunMetrics.PARSE);
+			long length = spillTrace(trace, pages);	// Forward pass
+			metrics.phase(RunMetrics.PREPROCESS);
+			spillNextUse(pages, next, length);		// Reverse pass
+			metrics.phase(RunMetrics.SIMULATE);
+			simulate(pages, next, length);			// Forward pass over both spill files
+		} finally {
+			metrics.finish();
+		}
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Streams the trace into the pages spill file.
+	 *
+	 * @param trace the TraceReader used to read the trace file
+	 * @param pages the pages spill file
+	 * @return the number of memory accesses in the trace
+	 * @throws IOException if the trace or the spill file can not be read or written
+	 */
+	private long spillTrace(TraceReader trace, FileChannel pages) throws IOException {
+
+		long length = 0;
+
+		pageBuf.clear();
+		while (trace.next()) {
+			if (!pageBuf.hasRemaining())
+				writeFully(pages, pageBuf, length * Integer.BYTES - pageBuf.position());
+
+			pageBuf.putInt((trace.page() << 1) | (trace.isStore() ? 1 : 0));
+			length++;
+		}
+		writeFully(pages, pageBuf, length * Integer.BYTES - pageBuf.position());
+
+		return length;
+	}
+
+	/**
+	 * Walks the pages spill file backwards one chunk at a time and writes the
+	 * line number of the next access to the same page as each memory access into
+	 * the next-use spill file, at the same index.
+	 *
+	 * @param pages  the pages spill file
+	 * @param next   the next-use spill file
+	 * @param length the number of memory accesses in the trace
+	 * @throws IOException if a spill file can not be read or written
+	 */
+	private void spillNextUse(FileChannel pages, FileChannel next, long length) throws IOException {
+
+		long[] seen = new long[PTpages]; // The line number each page is next accessed at, as of the current line
+		Arrays.fill(seen, NEVER);
+
+		for (long end = length; end > 0;) {
+			long start = Math.max(0, end - CHUNK);
+			int count = (int) (end - start);
+
+			readFully(pages, pageBuf, start * Integer.BYTES, count * Integer.BYTES);
+			nextBuf.clear();
+
+			for (int j = count - 1; j >= 0; j--) {
+				int index = pageBuf.getInt(j * Integer.BYTES) >>> 1;
+				nextBuf.putLong(j * Long.BYTES, seen[index]);
+				seen[index] = start + j;
+			}
+
+			nextBuf.position(count * Long.BYTES);
+			writeFully(next, nextBuf, start * Long.BYTES);
+			end = start;
+		}
+	}
+
+	/**
+	 * Runs the simulation by streaming the pages and next-use spill files side by
+	 * side.
+	 *
+	 * @param pages  the pages spill file
+	 * @param next   the next-use spill file
+	 * @param length the number of memory accesses in the trace
+	 * @throws IOException if a spill file can not be read
+	 */
+	private void simulate(FileChannel pages, FileChannel next, long length) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		for (long start = 0; start < length; start += CHUNK) {
+			int count = (int) Math.min(CHUNK, length - start);
+
+			readFully(pages, pageBuf, start * Integer.BYTES, count * Integer.BYTES);
+			readFully(next, nextBuf, start * Long.BYTES, count * Long.BYTES);
+
+			for (int j = 0; j < count; j++) {
+
+				int record = pageBuf.getInt(j * Integer.BYTES);
+				long nextUse = nextBuf.getLong(j * Long.BYTES);
+				long key = DecodedTrace.futureKey(nextUse, start + j); // Same keys as OPT
+
+				index = record >>> 1;
+
+				if ((record & 1) != 0)
+					markDirty(index);
+
+				if (isResident(index)) { 	// Page hit
+					hit(index);
+					heap.set(frameOf(index), key);
+
+				} else { 					// Page Fault
+					fault(index);
+
+					if (RAMhasRoom()) {
+						heap.set(load(index), key);
+					} else {
+						long begin = metrics.victimStart();
+						int frame = heap.top(); // The frame whose page has the Furthest First Access in the future
+						metrics.victimChosen(begin);
+						evict(frame);
+						load(index, frame);
+						heap.set(frame, key);
+					}
+				}
+				memAccess++;
+			}
+		}
+	}
+
+	/**
+	 * Reads a range of a spill file into a buffer, from position 0 of the buffer.
+	 */
+	private static void readFully(FileChannel channel, ByteBuffer buf, long position, int bytes) throws IOException {
+		buf.clear().limit(bytes);
+		while (buf.hasRemaining()) {
+			int n = channel.read(buf, position + buf.position());
+			if (n < 0)
+				throw new IOException("Unexpected end of spill file");
+		}
+	}
+
+	/**
+	 * Writes the contents of a buffer, up to its position, to a spill file at the
+	 * file position passed in, then clears the buffer.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buf, long position) throws IOException {
+		buf.flip();
+		while (buf.hasRemaining())
+			channel.write(buf, position + buf.position());
+		buf.clear();
+	}
+}
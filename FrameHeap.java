@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * An indexed binary max-heap of the frames of RAM, keyed by a long priority
+ * per frame. The heap and the position of each frame in it are kept in int
+ * arrays, so the key of any frame can be changed in O(log frames) without
+ * searching for it and without allocating.
+ *
+ * Used by OPT, where the key of a frame is the time its page will next be
+ * accessed and the frame at the top of the heap is the optimal victim.
+ *
+ * @author Steven Montalbano
+ */
+public class FrameHeap {
+
+	private final int[] heap; 	// The frames in heap order; heap[0] has the largest key
+	private final int[] pos; 	// The position of each frame in heap, or -1 if it is not in the heap
+	private final long[] key; 	// The key of each frame
+	private int size; 			// The number of frames in the heap
+
+	/**
+	 * @param frames the number of frames of RAM
+	 */
+	public FrameHeap(int frames) {
+		this.heap = new int[frames];
+		this.pos = new int[frames];
+		this.key = new long[frames];
+		this.size = 0;
+		Arrays.fill(pos, -1);
+	}
+
+	/**
+	 * @return the frame with the largest key; the heap must not be empty
+	 */
+	public int top() {
+		return heap[0];
+	}
+
+	/**
+	 * @param frame a frame in the heap
+	 * @return the key of the frame
+	 */
+	public long key(int frame) {
+		return key[frame];
+	}
+
+	/**
+	 * @return the number of frames in the heap
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Sets the key of a frame, inserting the frame into the heap if it is not in
+	 * it yet, and restores the heap order.
+	 *
+	 * @param frame the frame
+	 * @param k     the frame's new key
+	 */
+	public void set(int frame, long k) {
+
+		if (pos[frame] == -1) { // Insert at the bottom of the heap
+			pos[frame] = size;
+			heap[size++] = frame;
+			key[frame] = k;
+			siftUp(pos[frame]);
+			return;
+		}
+
+		long old = key[frame];
+		key[frame] = k;
+		if (k > old)
+			siftUp(pos[frame]);
+		else if (k < old)
+			siftDown(pos[frame]);
+	}
+
+	private void siftUp(int i) {
+		int frame = heap[i];
+		long k = key[frame];
+
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (key[heap[parent]] >= k)
+				break;
+			heap[i] = heap[parent];
+			pos[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = frame;
+		pos[frame] = i;
+	}
+
+	private void siftDown(int i) {
+		int frame = heap[i];
+		long k = key[frame];
+		int half = size >>> 1;
+
+		while (i < half) {
+			int child = (i << 1) + 1;
+			if (child + 1 < size && key[heap[child + 1]] > key[heap[child]])
+				child++;
+			if (k >= key[heap[child]])
+				break;
+			heap[i] = heap[child];
+			pos[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = frame;
+		pos[frame] = i;
+	}
+}
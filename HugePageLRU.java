@@ -0,0 +1,416 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent LRU over a mix of base pages and 2 MB huge pages, to
+ * weigh a transparent huge page policy. Every 2 MB aligned region of an address
+ * space is either mapped by base pages, the page size of the trace, or by one
+ * huge page. A page fault in a region promotes it to a huge page when the
+ * region would then have at least the promotion threshold of its base pages
+ * resident: a threshold of 1 maps every region huge on its first fault, like
+ * THP's always mode, and a higher one waits for the region to fill up, like
+ * khugepaged's max_ptes_none. A promotion collapses the resident base pages
+ * of the region into the huge page in memory, carrying over their dirty bits,
+ * so it costs no writes.
+ *
+ * RAM is the -n frames of the base page size, and a huge page takes as many of
+ * them as it covers. LRU runs over the resident units, base and huge pages
+ * alike, evicting from the least recently used end until the faulting unit
+ * fits. A huge page is evicted whole and a dirty one is written back whole.
+ *
+ * The statistics weigh the trade-off: huge pages take fewer faults and need
+ * fewer translations to map RAM, the average number of resident units, which
+ * is what the TLB has to hold; but they pin memory that is never touched, the
+ * internal fragmentation, and one store makes a whole 2 MB write-back. Listener
+ * events for huge pages carry the huge page number, the virtual page number
+ * shifted right by the order, with the order and frame EMPTY, and a promotion shows up as the clean eviction of
+ * every base page it collapses, so the TLB drops their translations.
+ *
+ * The units are on one intrusive list threaded through two int arrays, the
+ * frames of the base pages first and the huge page slots after them. The
+ * regions are numbered densely by a RadixPageTable of their own.
+ *
+ * @see LRU.java, TLB.java
+ * @author Steven Montalbano
+ */
+public class HugePageLRU extends PRA {
+
+	public static final int HUGE_SHIFT = 21; 	// Huge pages are 2 MB
+	public static final int NEVER = 0; 			// The promotion threshold that never promotes
+
+	private final int promote; 			// The resident base pages of a region that make a fault promote it, or NEVER
+	private final RadixPageTable regions; // Numbers the regions of every address space densely
+	private final int[] hugeOf; 		// The huge page slot of each region, or EMPTY
+	private final int[] residentBase; 	// The number of base pages of each region in RAM
+	private final int[] regionFirst; 	// The first frame of each region's list of base pages in RAM, or EMPTY
+
+	// Sized for the page size of the trace at the start of sim
+
+	private int order; 					// log2 of the base pages per huge page
+	private int perHuge; 				// The base pages per huge page
+	private int words; 					// The longs of a huge page's touched bitmap
+	private int[] newer, older; 		// The LRU list of the units; frame f is unit f and huge slot h is unit RAMframes + h
+	private int mru, lru; 				// The most and least recently used units, or EMPTY
+	private int[] regionOfFrame; 		// The region of the base page in each frame
+	private int[] regionNext, regionPrev; // The list of the base pages in RAM of each region
+	private int[] freeFrames, freeHuge; // Stacks of the free frames and huge page slots
+	private int freeFrameCount, freeHugeCount;
+	private int[] hugeRegion; 			// The region of each huge page
+	private int[] hugePage; 			// The page id that faulted each huge page in, for its process
+	private long[] hugeVpn; 			// The virtual page number of each huge page, in huge pages
+	private boolean[] hugeDirty; 		// Has each huge page been stored to?
+	private long[] touched; 			// The base pages of each huge page used since it was mapped, a bitmap per slot
+	private long[] scratch; 			// The touched bitmap of a promotion in progress
+	private int used; 					// The frames in use, a huge page counting as perHuge
+	private int baseResident, hugeResident; // The number of resident units of each size
+
+	private long hugeFaults, collapsed; // Statistics tracking
+	private long hugeWrites; 			// The write-backs of whole huge pages
+	private long hugeMapped, untouched; // The base pages of the evicted huge pages, and how many went unused
+	private long translations; 			// The sum of the resident units over every memory access
+
+	/**
+	 * @param frames  the number of Physical Memory frames in RAM, of the base page
+	 *                size
+	 * @param pages   the size of the whole Page Table
+	 * @param promote the resident base pages of a region that make a fault in it
+	 *                promote it to a huge page, or NEVER
+	 */
+	public HugePageLRU(int frames, int pages, int promote) {
+		super(frames, pages);
+		if (promote < 0)
+			throw new IllegalArgumentException("The promotion threshold must not be negative");
+
+		this.name = "LRU (huge pages, " + policyName(promote) + ")";
+		this.promote = promote;
+		this.regions = new RadixPageTable(PTpages);
+		this.hugeOf = new int[PTpages];
+		this.residentBase = new int[PTpages];
+		this.regionFirst = new int[PTpages];
+		Arrays.fill(hugeOf, EMPTY);
+		Arrays.fill(regionFirst, EMPTY);
+	}
+
+	/**
+	 * @param policy "always", "never", or the promotion threshold
+	 * @return the promotion threshold
+	 */
+	public static int policyOf(String policy) {
+		switch (policy.toLowerCase()) {
+		case "always":
+			return 1;
+		case "never":
+			return NEVER;
+		default:
+			return Integer.parseInt(policy);
+		}
+	}
+
+	private static String policyName(int promote) {
+		return promote == NEVER ? "never" : promote == 1 ? "always" : "promote at " + promote;
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+		int lastPid = -1, space = 0; // The PID of the last access and its address space in regions
+
+		setUp(trace.pageShift());
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+			long vpn = trace.vpn();
+			if (trace.pid() != lastPid) {
+				lastPid = trace.pid();
+				space = regions.space(lastPid);
+			}
+			int region = regions.lookup(space, vpn >>> order);
+			int offset = (int) vpn & (perHuge - 1);
+			int huge = hugeOf[region];
+
+			if (huge != EMPTY) { 	// Huge page hit
+				if (trace.isStore())
+					hugeDirty[huge] = true;
+				touched[huge * words + (offset >>> 6)] |= 1L << offset;
+				if (processes != null)
+					processes.hit(processOf(index));
+				if (listener != null)
+					listener.hit(memAccess, processOf(index), hugeVpn[huge], order, EMPTY);
+				unlink(RAMframes + huge);
+				pushFront(RAMframes + huge);
+
+			} else if (isResident(index)) { 	// Base page hit
+				if (trace.isStore())
+					markDirty(index);
+				hit(index);
+				int frame = frameOf(index);
+				unlink(frame);
+				pushFront(frame);
+
+			} else if (promote != NEVER && residentBase[region] + 1 >= promote) { 	// Page Fault, mapped huge
+				promote(region, index, vpn, offset, trace.isStore());
+
+			} else { 	// Page Fault
+				fault(index);
+				loadBase(region, index, trace.isStore());
+			}
+
+			translations += baseResident + hugeResident;
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to size the per frame state for the page size of the trace
+	 *
+	 * @param pageShift the number of offset bits of a base page
+	 * @throws IOException if the page size or RAM can not hold huge pages
+	 */
+	private void setUp(int pageShift) throws IOException {
+		if (pageShift >= HUGE_SHIFT)
+			throw new IOException("The base pages must be smaller than the 2 MB huge pages");
+
+		order = HUGE_SHIFT - pageShift;
+		perHuge = 1 << order;
+		if (promote > perHuge)
+			throw new IOException(String.format("The promotion threshold must be at most the %d pages of a huge page",
+					perHuge));
+		if (promote != NEVER && RAMframes < perHuge)
+			throw new IOException(String.format("RAM must hold at least one huge page, %d frames", perHuge));
+
+		int hugeSlots = promote == NEVER ? 0 : RAMframes / perHuge;
+		words = (perHuge + 63) >>> 6;
+		newer = new int[RAMframes + hugeSlots];
+		older = new int[RAMframes + hugeSlots];
+		mru = lru = EMPTY;
+		regionOfFrame = new int[RAMframes];
+		regionNext = new int[RAMframes];
+		regionPrev = new int[RAMframes];
+		freeFrames = new int[RAMframes];
+		for (int frame = RAMframes - 1; frame >= 0; frame--)
+			freeFrames[freeFrameCount++] = frame;
+		freeHuge = new int[hugeSlots];
+		for (int huge = hugeSlots - 1; huge >= 0; huge--)
+			freeHuge[freeHugeCount++] = huge;
+		hugeRegion = new int[hugeSlots];
+		hugePage = new int[hugeSlots];
+		hugeVpn = new long[hugeSlots];
+		hugeDirty = new boolean[hugeSlots];
+		touched = new long[hugeSlots * words];
+		scratch = new long[words];
+	}
+
+	/**
+	 * Helper function to load the faulting page as a base page
+	 *
+	 * @param region the region of the page
+	 * @param index  the page
+	 * @param store  was the access a store?
+	 */
+	private void loadBase(int region, int index, boolean store) {
+		makeRoom(1);
+		int frame = freeFrames[--freeFrameCount];
+		load(index, frame);
+		if (store)
+			markDirty(index);
+
+		regionOfFrame[frame] = region;
+		regionPrev[frame] = EMPTY;
+		regionNext[frame] = regionFirst[region];
+		if (regionFirst[region] != EMPTY)
+			regionPrev[regionFirst[region]] = frame;
+		regionFirst[region] = frame;
+		residentBase[region]++;
+		baseResident++;
+		used++;
+		pushFront(frame);
+	}
+
+	/**
+	 * Helper function to fault the page in as a huge page for its whole region,
+	 * collapsing the region's resident base pages into it
+	 *
+	 * @param region the region
+	 * @param index  the faulting page
+	 * @param vpn    the virtual page number of the faulting page
+	 * @param offset the faulting page's base page within the region
+	 * @param store  was the access a store?
+	 */
+	private void promote(int region, int index, long vpn, int offset, boolean store) {
+		boolean dirty = store;
+		Arrays.fill(scratch, 0);
+		scratch[offset >>> 6] |= 1L << offset;
+
+		for (int frame = regionFirst[region], next; frame != EMPTY; frame = next) { 	// Collapse
+			next = regionNext[frame];
+			int page = RAM[frame];
+			long pageVpn = vpnOf(page);
+			dirty |= PTE.isDirty(pageTable[page]);
+			int pageOffset = (int) pageVpn & (perHuge - 1);
+			scratch[pageOffset >>> 6] |= 1L << pageOffset;
+			if (listener != null)
+				listener.evict(memAccess, processOf(page), pageVpn, 0, frame, false);
+			pageTable[page] = 0;
+			RAM[frame] = EMPTY;
+			unlink(frame);
+			freeFrames[freeFrameCount++] = frame;
+			used--;
+			baseResident--;
+			collapsed++;
+		}
+		regionFirst[region] = EMPTY;
+		residentBase[region] = 0;
+
+		pageFaults++; 	// The fault, for the huge page once its base pages are gone
+		if (processes != null)
+			processes.fault(processOf(index));
+		if (listener != null)
+			listener.fault(memAccess, processOf(index), vpn >>> order, order);
+
+		makeRoom(perHuge);
+		int huge = freeHuge[--freeHugeCount]; 	// There is a free slot once there is room for a huge page
+		System.arraycopy(scratch, 0, touched, huge * words, words);
+		hugeOf[region] = huge;
+		hugeRegion[huge] = region;
+		hugePage[huge] = index;
+		hugeVpn[huge] = vpn >>> order;
+		hugeDirty[huge] = dirty;
+		used += perHuge;
+		hugeResident++;
+		hugeFaults++;
+		pushFront(RAMframes + huge);
+	}
+
+	/**
+	 * Helper function to evict least recently used units until a unit of a size
+	 * fits in RAM
+	 *
+	 * @param frames the frames of the unit to make room for
+	 */
+	private void makeRoom(int frames) {
+		if (used + frames <= RAMframes)
+			return;
+
+		long start = metrics.victimStart();
+		while (used + frames > RAMframes) {
+			int victim = lru;
+			unlink(victim);
+			if (victim < RAMframes)
+				evictBase(victim);
+			else
+				evictHuge(victim - RAMframes);
+		}
+		metrics.victimChosen(start);
+	}
+
+	private void evictBase(int frame) {
+		int region = regionOfFrame[frame];
+		if (regionPrev[frame] != EMPTY)
+			regionNext[regionPrev[frame]] = regionNext[frame];
+		else
+			regionFirst[region] = regionNext[frame];
+		if (regionNext[frame] != EMPTY)
+			regionPrev[regionNext[frame]] = regionPrev[frame];
+		residentBase[region]--;
+
+		evict(frame);
+		freeFrames[freeFrameCount++] = frame;
+		used--;
+		baseResident--;
+	}
+
+	private void evictHuge(int huge) {
+		boolean dirty = hugeDirty[huge];
+		if (dirty) { 	// The whole huge page is written back
+			diskWrites++;
+			hugeWrites++;
+			if (processes != null)
+				processes.write(processOf(hugePage[huge]));
+		}
+		if (listener != null) {
+			listener.evict(memAccess, processOf(hugePage[huge]), hugeVpn[huge], order, EMPTY, dirty);
+			if (dirty)
+				listener.writeBack(memAccess, processOf(hugePage[huge]), hugeVpn[huge], order);
+		}
+
+		hugeMapped += perHuge;
+		untouched += perHuge - touchedPages(huge);
+		hugeOf[hugeRegion[huge]] = EMPTY;
+		freeHuge[freeHugeCount++] = huge;
+		used -= perHuge;
+		hugeResident--;
+	}
+
+	/**
+	 * @param huge a huge page slot
+	 * @return the base pages of the huge page used since it was mapped
+	 */
+	private int touchedPages(int huge) {
+		int count = 0;
+		for (int w = huge * words; w < (huge + 1) * words; w++)
+			count += Long.bitCount(touched[w]);
+		return count;
+	}
+
+	private void pushFront(int unit) {
+		newer[unit] = EMPTY;
+		older[unit] = mru;
+		if (mru != EMPTY)
+			newer[mru] = unit;
+		else
+			lru = unit;
+		mru = unit;
+	}
+
+	private void unlink(int unit) {
+		if (newer[unit] != EMPTY)
+			older[newer[unit]] = older[unit];
+		else
+			mru = older[unit];
+		if (older[unit] != EMPTY)
+			newer[older[unit]] = newer[unit];
+		else
+			lru = newer[unit];
+	}
+
+	/**
+	 * @return the write-backs of whole huge pages, counted in getDiskWrites() too
+	 */
+	public long getHugeWrites() {
+		return hugeWrites;
+	}
+
+	@Override
+	public String extraStats() {
+		if (perHuge == 0)
+			return ""; 	// Never simulated
+
+		long mapped = hugeMapped, unused = untouched; 	// The huge pages still resident count too
+		for (int huge = 0; huge < hugeRegion.length; huge++) {
+			if (hugeOf[hugeRegion[huge]] == huge) {
+				mapped += perHuge;
+				unused += perHuge - touchedPages(huge);
+			}
+		}
+
+		int pageShift = HUGE_SHIFT - order;
+		long written = ((diskWrites - hugeWrites) << pageShift) + (hugeWrites << HUGE_SHIFT);
+		return String.format(
+				"Huge page size: %s (%d pages)\n" + "Faults mapped huge: %d (%d base pages collapsed)\n"
+						+ "Huge page internal fragmentation: %.2f%%\n"
+						+ "Writes to disk: %d base pages, %d huge pages, %.1f MB\n"
+						+ "Average resident translations: %.2f\n",
+				VMSim.formatSize(1L << HUGE_SHIFT), perHuge, hugeFaults, collapsed,
+				mapped == 0 ? 0 : 100.0 * unused / mapped, diskWrites - hugeWrites, hugeWrites,
+				written / (double) (1 << 20), memAccess == 0 ? 0 : (double) translations / memAccess);
+	}
+}
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * A fixed number of intrusive doubly linked lists threaded through the
+ * indices 0 to n - 1, where an index stands for a frame of RAM or a slot of
+ * metadata. Each index is on at most one of the lists at a time. The links,
+ * the list each index is on, and the ends and size of each list are all kept
+ * in primitive arrays, so every operation is O(1) and nothing is allocated.
+ *
+ * The head of a list is its most recently inserted end; algorithms that keep
+ * recency order insert at the head and take victims from the tail.
+ *
+ * Used by ARC, which keeps its four lists over the frames of RAM and a pool of
+ * ghost slots, by LIRS for its stack and queues, and by LFU for its frequency
+ * buckets and the pages in each.
+ *
+ * @author Steven Montalbano
+ */
+public class IndexLists {
+
+	public static final int NONE = -1; // The end of a list, or an index that is on no list
+
+	private final int[] toHead; // The neighbor of each index toward the head of its list, or NONE
+	private final int[] toTail; // The neighbor of each index toward the tail of its list, or NONE
+	private final int[] owner; 	// The list each index is on, or NONE
+	private final int[] head, tail, size; // The ends and length of each list
+
+	/**
+	 * @param indices the number of indices, 0 to indices - 1
+	 * @param lists   the number of lists, 0 to lists - 1
+	 */
+	public IndexLists(int indices, int lists) {
+		this.toHead = new int[indices];
+		this.toTail = new int[indices];
+		this.owner = new int[indices];
+		this.head = new int[lists];
+		this.tail = new int[lists];
+		this.size = new int[lists];
+		Arrays.fill(owner, NONE);
+		Arrays.fill(head, NONE);
+		Arrays.fill(tail, NONE);
+	}
+
+	/**
+	 * Inserts an index that is on no list at the head of a list
+	 *
+	 * @param list  the list
+	 * @param index the index
+	 */
+	public void pushHead(int list, int index) {
+		int h = head[list];
+		toHead[index] = NONE;
+		toTail[index] = h;
+		if (h != NONE)
+			toHead[h] = index;
+		else
+			tail[list] = index;
+		head[list] = index;
+		owner[index] = list;
+		size[list]++;
+	}
+
+	/**
+	 * Inserts an index that is on no list at the tail of a list
+	 *
+	 * @param list  the list
+	 * @param index the index
+	 */
+	public void pushTail(int list, int index) {
+		int t = tail[list];
+		toTail[index] = NONE;
+		toHead[index] = t;
+		if (t != NONE)
+			toTail[t] = index;
+		else
+			head[list] = index;
+		tail[list] = index;
+		owner[index] = list;
+		size[list]++;
+	}
+
+	/**
+	 * Unlinks an index from the list it is on
+	 *
+	 * @param index an index on a list
+	 */
+	public void remove(int index) {
+		int list = owner[index], h = toHead[index], t = toTail[index];
+		if (h != NONE)
+			toTail[h] = t;
+		else
+			head[list] = t;
+		if (t != NONE)
+			toHead[t] = h;
+		else
+			tail[list] = h;
+		owner[index] = NONE;
+		size[list]--;
+	}
+
+	/**
+	 * Inserts an index that is on no list next to an index on a list, on the side
+	 * toward the head
+	 *
+	 * @param at    the index on a list
+	 * @param index the index to insert
+	 */
+	public void pushTowardHead(int at, int index) {
+		int list = owner[at], h = toHead[at];
+		toHead[index] = h;
+		toTail[index] = at;
+		toHead[at] = index;
+		if (h != NONE)
+			toTail[h] = index;
+		else
+			head[list] = index;
+		owner[index] = list;
+		size[list]++;
+	}
+
+	/**
+	 * Puts an index that is on no list in the place of an index on a list, which
+	 * is left on no list
+	 *
+	 * @param index the index on a list
+	 * @param with  the index taking its place
+	 */
+	public void replace(int index, int with) {
+		int list = owner[index], h = toHead[index], t = toTail[index];
+		toHead[with] = h;
+		toTail[with] = t;
+		if (h != NONE)
+			toTail[h] = with;
+		else
+			head[list] = with;
+		if (t != NONE)
+			toHead[t] = with;
+		else
+			tail[list] = with;
+		owner[with] = list;
+		owner[index] = NONE;
+	}
+
+	/**
+	 * Moves an index, on any list or none, to the head of a list
+	 *
+	 * @param list  the list
+	 * @param index the index
+	 */
+	public void moveToHead(int list, int index) {
+		if (owner[index] == list && head[list] == index)
+			return;
+		if (owner[index] != NONE)
+			remove(index);
+		pushHead(list, index);
+	}
+
+	/**
+	 * Removes the index at the tail of a list
+	 *
+	 * @param list a list that is not empty
+	 * @return the index removed
+	 */
+	public int popTail(int list) {
+		int index = tail[list];
+		remove(index);
+		return index;
+	}
+
+	/**
+	 * @return the index at the head of a list, or NONE if it is empty
+	 */
+	public int head(int list) {
+		return head[list];
+	}
+
+	/**
+	 * @return the index at the tail of a list, or NONE if it is empty
+	 */
+	public int tail(int list) {
+		return tail[list];
+	}
+
+	/**
+	 * @return the number of indices on a list
+	 */
+	public int size(int list) {
+		return size[list];
+	}
+
+	/**
+	 * @return the list an index is on, or NONE
+	 */
+	public int listOf(int index) {
+		return owner[index];
+	}
+
+	/**
+	 * @return the neighbor of an index toward the head of its list, or NONE
+	 */
+	public int towardHead(int index) {
+		return toHead[index];
+	}
+}
@@ -0,0 +1,187 @@
+import java.io.IOException;
+
+/**
+ * A class to represent the Least Frequently Used Page
+ * Replacement Algorithm. Every resident page counts its
+ * accesses since it was loaded, and the victim is the page
+ * with the smallest count, the least recently used of them on
+ * a tie.
+ *
+ * This is the O(1) LFU of Shah, Mitra and Matani: the pages
+ * with the same count share a frequency bucket, and the
+ * buckets are kept in a list ordered by count. A hit moves
+ * the page to the bucket one count up, creating it next to
+ * its old bucket if it is missing, and the victim is the
+ * oldest page of the lowest bucket, so no access ever
+ * searches or sorts. The buckets and the pages in each are
+ * intrusive lists in IndexLists over RAMframes bucket slots
+ * and the frames of RAM.
+ *
+ * A page that was popular long ago would otherwise keep its
+ * count forever, so with a decay interval set every count is
+ * halved, rounding up, every that many accesses. Halving
+ * keeps the buckets in order, so a decay only merges
+ * neighboring buckets, in O(RAMframes).
+ *
+ * @see LRFU.java
+ * @author Steven Montalbano
+ */
+public class LFU extends PRA {
+
+	private static final int CHAIN = 0, FREE = 1; // The buckets in use, ordered by count from the tail up, and
+													// the free bucket slots
+
+	private final IndexLists buckets; 	// CHAIN and FREE over the bucket slots
+	private final IndexLists pages; 	// The frames of the pages in each bucket, one list per bucket slot,
+										// the most recently used at the head
+	private final long[] count; 		// The count of the pages in each bucket slot
+	private long decay; 				// The number of memory accesses between count halvings, or 0 for none
+	private long sinceDecay; 			// The number of memory accesses since the last halving
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public LFU(int frames, int pages) {
+		super(frames, pages);
+		this.name = "LFU";
+		this.buckets = new IndexLists(RAMframes, 2);
+		this.pages = new IndexLists(RAMframes, RAMframes);
+		this.count = new long[RAMframes];
+		for (int slot = 0; slot < RAMframes; slot++)
+			buckets.pushHead(FREE, slot);
+	}
+
+	/**
+	 * Sets the count decay interval
+	 *
+	 * @param decay the number of memory accesses between count halvings, or 0 for
+	 *              none
+	 */
+	public void setDecay(long decay) {
+		if (decay < 0)
+			throw new IllegalArgumentException("The decay interval must not be negative");
+		this.decay = decay;
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit
+				hit(index);
+				increment(frameOf(index));
+
+			} else { 	// Page Fault
+				fault(index);
+
+				int frame;
+				if (RAMhasRoom()) {
+					frame = usedFrames++;
+				} else {
+					long start = metrics.victimStart();
+					int lowest = buckets.tail(CHAIN);
+					frame = pages.popTail(lowest); 	// The least recently used page with the smallest count
+					if (pages.size(lowest) == 0)
+						release(lowest);
+					metrics.victimChosen(start);
+					evict(frame);
+				}
+
+				load(index, frame);
+				int first = buckets.tail(CHAIN); 	// A new page has a count of one, the smallest there is
+				if (first == IndexLists.NONE || count[first] != 1) {
+					first = buckets.popTail(FREE);
+					count[first] = 1;
+					buckets.pushTail(CHAIN, first);
+				}
+				pages.pushHead(first, frame);
+			}
+
+			if (decay > 0 && ++sinceDecay == decay) {
+				halve();
+				sinceDecay = 0;
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to move the page in a frame to the bucket one count up
+	 *
+	 * @param frame the frame of the page
+	 */
+	private void increment(int frame) {
+		int bucket = pages.listOf(frame);
+		long up = count[bucket] + 1;
+		int next = buckets.towardHead(bucket);
+		boolean hasNext = next != IndexLists.NONE && count[next] == up;
+
+		if (!hasNext && pages.size(bucket) == 1) { 	// The page is alone; its bucket moves up with it
+			count[bucket] = up;
+			pages.moveToHead(bucket, frame);
+			return;
+		}
+		if (!hasNext) {
+			next = buckets.popTail(FREE);
+			count[next] = up;
+			buckets.pushTowardHead(bucket, next);
+		}
+		pages.remove(frame);
+		pages.pushHead(next, frame);
+		if (pages.size(bucket) == 0)
+			release(bucket);
+	}
+
+	/**
+	 * Helper function to halve every count, rounding up so no count drops to
+	 * zero, merging the buckets whose counts become equal. The pages of a merged
+	 * bucket go ahead of the pages of the bucket below, as the more recent ones.
+	 */
+	private void halve() {
+		int below = IndexLists.NONE;
+		for (int bucket = buckets.tail(CHAIN); bucket != IndexLists.NONE;) {
+			int next = buckets.towardHead(bucket);
+			long halved = (count[bucket] + 1) >>> 1;
+
+			if (below != IndexLists.NONE && count[below] == halved) {
+				int frame;
+				while ((frame = pages.tail(bucket)) != IndexLists.NONE) {
+					pages.remove(frame);
+					pages.pushHead(below, frame);
+				}
+				release(bucket);
+			} else {
+				count[bucket] = halved;
+				below = bucket;
+			}
+			bucket = next;
+		}
+	}
+
+	/**
+	 * Helper function to return an empty bucket to the free slots
+	 *
+	 * @param bucket the bucket slot
+	 */
+	private void release(int bucket) {
+		buckets.remove(bucket);
+		buckets.pushHead(FREE, bucket);
+	}
+}
@@ -0,0 +1,205 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent the Low Inter-reference Recency Set
+ * (LIRS) Page Replacement Algorithm of Jiang and Zhang. Pages
+ * are ranked by their reuse distance rather than by their
+ * recency alone: pages with a small distance between their
+ * last two accesses are LIR pages and hold most of RAM, the
+ * rest are HIR pages. Only a small share of RAM, 1% of the
+ * frames and at least one, holds resident HIR pages, and the
+ * victim is always the oldest of them.
+ *
+ * LIRS keeps a recency stack S of LIR pages, resident HIR
+ * pages and non-resident HIR pages, pruned so its bottom is
+ * always a LIR page, and a queue Q of the resident HIR pages.
+ * A HIR page accessed again while it is still in S has a
+ * reuse distance smaller than the oldest LIR page's, so it
+ * becomes LIR and the bottom LIR page is demoted to Q.
+ *
+ * S and Q are intrusive lists in IndexLists over the frames
+ * of RAM and a pool of RAMframes ghost slots for the
+ * non-resident pages in S. Once every ghost slot is used,
+ * the page that went non-resident earliest is dropped from S,
+ * so the metadata is bounded at twice the number of frames.
+ * Every access is O(1) amortized: each stack entry is pruned
+ * at most once per time it is pushed.
+ *
+ * @author Steven Montalbano
+ */
+public class LIRS extends PRA {
+
+	private static final int S = 0; 	// The recency stack, the only list of stack
+	private static final int Q = 0, NR = 1, FREE = 2; // The resident HIR queue over the frames, and the
+													// non-resident pages in S and free slots over the ghost slots
+
+	private final IndexLists stack; 	// S over indices [0, RAMframes) = the frames of RAM, and
+										// [RAMframes, 2 * RAMframes) = the ghost slots
+	private final IndexLists queues; 	// Q, NR and FREE, over the same indices
+	private final boolean[] lir; 		// Is the page in each frame a LIR page?
+	private final int[] ghostPage; 		// The page number remembered by each ghost slot
+	private final int[] ghostOf; 		// The ghost slot index remembering each page, or EMPTY
+	private final int maxLIR; 			// The number of frames held by LIR pages once RAM is full
+	private int lirCount; 				// The number of LIR pages
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public LIRS(int frames, int pages) {
+		super(frames, pages);
+		this.name = "LIRS";
+		this.stack = new IndexLists(2 * RAMframes, 1);
+		this.queues = new IndexLists(2 * RAMframes, 3);
+		this.lir = new boolean[RAMframes];
+		this.ghostPage = new int[RAMframes];
+		this.ghostOf = new int[PTpages];
+		this.maxLIR = RAMframes - Math.max(1, RAMframes / 100);
+		this.lirCount = 0;
+		Arrays.fill(ghostOf, EMPTY);
+		for (int slot = 0; slot < RAMframes; slot++)
+			queues.pushHead(FREE, RAMframes + slot);
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit
+				hit(index);
+				int frame = frameOf(index);
+
+				if (lir[frame]) {
+					boolean bottom = stack.tail(S) == frame;
+					stack.moveToHead(S, frame);
+					if (bottom)
+						prune();
+
+				} else if (stack.listOf(frame) == S) { 	// A HIR page with a smaller reuse distance than the
+					queues.remove(frame); 				// oldest LIR page becomes LIR
+					stack.moveToHead(S, frame);
+					promote(frame);
+
+				} else { 								// A HIR page with a large reuse distance stays HIR
+					stack.pushHead(S, frame);
+					queues.moveToHead(Q, frame);
+				}
+
+			} else { 	// Page Fault
+				fault(index);
+
+				int frame;
+				if (RAMhasRoom()) {
+					frame = usedFrames++;
+				} else {
+					long start = metrics.victimStart();
+					frame = queues.popTail(Q); 	// The oldest resident HIR page
+					metrics.victimChosen(start);
+
+					int victim = evict(frame);
+					if (stack.listOf(frame) == S) 	// Keep it in S as a non-resident HIR page
+						stack.replace(frame, remember(victim));
+				}
+
+				load(index, frame);
+				int ghost = ghostOf[index];
+
+				if (ghost != EMPTY) { 	// A non-resident HIR page still in S becomes LIR
+					forget(ghost);
+					stack.pushHead(S, frame);
+					promote(frame);
+				} else if (lirCount < maxLIR) { // RAM is filling up, the first pages are LIR
+					lir[frame] = true;
+					lirCount++;
+					stack.pushHead(S, frame);
+				} else {
+					lir[frame] = false;
+					stack.pushHead(S, frame);
+					queues.pushHead(Q, frame);
+				}
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to turn the page in a frame into a LIR page, demoting the
+	 * LIR page at the bottom of S to a resident HIR page if there are too many.
+	 *
+	 * @param frame the frame of the page, already at the top of S
+	 */
+	private void promote(int frame) {
+		lir[frame] = true;
+		lirCount++;
+		prune(); 	// Only needed when every resident page is HIR, with a single frame of RAM
+		if (lirCount > maxLIR) {
+			int bottom = stack.tail(S); 	// Always a LIR page
+			stack.remove(bottom);
+			lir[bottom] = false;
+			lirCount--;
+			queues.pushHead(Q, bottom);
+		}
+		prune();
+	}
+
+	/**
+	 * Helper function to pop HIR pages off the bottom of S until a LIR page is at
+	 * the bottom. Resident HIR pages stay in Q, non-resident ones are forgotten.
+	 */
+	private void prune() {
+		int bottom;
+		while ((bottom = stack.tail(S)) != IndexLists.NONE && (bottom >= RAMframes || !lir[bottom])) {
+			if (bottom >= RAMframes)
+				forget(bottom);
+			else
+				stack.remove(bottom);
+		}
+	}
+
+	/**
+	 * Helper function to give an evicted page a ghost slot, dropping the page
+	 * that went non-resident earliest if every slot is in use.
+	 *
+	 * @param page the page number of the evicted page
+	 * @return the ghost slot index, on no list of stack
+	 */
+	private int remember(int page) {
+		if (queues.size(FREE) == 0)
+			forget(queues.tail(NR));
+		int ghost = queues.popTail(FREE);
+		ghostPage[ghost - RAMframes] = page;
+		ghostOf[page] = ghost;
+		queues.pushHead(NR, ghost);
+		return ghost;
+	}
+
+	/**
+	 * Helper function to drop a non-resident page from S and free its slot
+	 *
+	 * @param ghost the ghost slot index
+	 */
+	private void forget(int ghost) {
+		if (stack.listOf(ghost) == S)
+			stack.remove(ghost);
+		queues.remove(ghost);
+		ghostOf[ghostPage[ghost - RAMframes]] = EMPTY;
+		queues.pushHead(FREE, ghost);
+	}
+}
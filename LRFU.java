@@ -0,0 +1,198 @@
+import java.io.IOException;
+
+/**
+ * A class to represent the Least Recently/Frequently Used
+ * (LRFU) Page Replacement Algorithm of Lee et al., which spans
+ * the range between LRU and LFU. Every access to a page adds
+ * to its Combined Recency and Frequency (CRF) value, and each
+ * access weighs 2^(-λx) after x more accesses, so the CRF of a
+ * page at time t is the sum of 2^(-λ(t - t_i)) over its past
+ * accesses t_i. The victim is the page with the smallest CRF.
+ * With λ = 0 every access weighs 1 and LRFU is LFU; with λ = 1
+ * the last access outweighs all the ones before it and LRFU is
+ * LRU.
+ *
+ * Only the CRF at each page's last access is kept, since the
+ * CRF of every page decays by the same factor between
+ * accesses. That keeps the order of the pages fixed while
+ * they are not accessed, so the frames are kept in a binary
+ * min-heap in int arrays, keyed by log2 of the CRF at the last
+ * access plus λ times its time: a key is the log2 of the CRF
+ * at any later time up to the same offset for every page. A
+ * hit or fault costs O(log RAMframes) and nothing is
+ * allocated.
+ *
+ * A decay interval can be set like in LFU, halving every CRF
+ * that often on top of λ.
+ *
+ * @see LFU.java, LRU.java
+ * @author Steven Montalbano
+ */
+public class LRFU extends PRA {
+
+	public static final double DEFAULT_LAMBDA = 0.001; // The default λ, close to LFU
+
+	private static final double LN2 = Math.log(2);
+
+	private final double lambda; 	// The weight decay rate of an access, from 0 = LFU to 1 = LRU
+	private final double[] crf; 	// The CRF of the page in each frame, as of its last access
+	private final long[] last; 		// The virtual time of the last access to the page in each frame
+	private final double[] key; 	// The heap key of each frame
+	private final int[] heap; 		// The frames in RAM, a min-heap on key
+	private final int[] slot; 		// The position of each frame in heap
+	private int heapSize; 			// The number of frames in heap
+	private long decay; 			// The number of memory accesses between CRF halvings, or 0 for none
+	private long sinceDecay; 		// The number of memory accesses since the last halving
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 * @param lambda the weight decay rate of an access, from 0 = LFU to 1 = LRU
+	 */
+	public LRFU(int frames, int pages, double lambda) {
+		super(frames, pages);
+		if (!(lambda >= 0 && lambda <= 1))
+			throw new IllegalArgumentException("Lambda must be between 0 and 1");
+
+		this.name = "LRFU";
+		this.lambda = lambda;
+		this.crf = new double[RAMframes];
+		this.last = new long[RAMframes];
+		this.key = new double[RAMframes];
+		this.heap = new int[RAMframes];
+		this.slot = new int[RAMframes];
+	}
+
+	/**
+	 * LRFU with the default λ
+	 *
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public LRFU(int frames, int pages) {
+		this(frames, pages, DEFAULT_LAMBDA);
+	}
+
+	/**
+	 * Sets the CRF decay interval
+	 *
+	 * @param decay the number of memory accesses between CRF halvings, or 0 for
+	 *              none
+	 */
+	public void setDecay(long decay) {
+		if (decay < 0)
+			throw new IllegalArgumentException("The decay interval must not be negative");
+		this.decay = decay;
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit, the CRF decays to now and the access adds 1
+				hit(index);
+				int frame = frameOf(index);
+				crf[frame] = 1 + crf[frame] * Math.exp(-lambda * LN2 * (memAccess - last[frame]));
+				last[frame] = memAccess;
+				key[frame] = lambda * memAccess + Math.log(crf[frame]) / LN2;
+				siftDown(slot[frame]); 	// A key only grows
+
+			} else { 	// Page Fault
+				fault(index);
+
+				int frame;
+				boolean room = RAMhasRoom();
+				if (room) {
+					frame = usedFrames++;
+				} else {
+					long start = metrics.victimStart();
+					frame = heap[0]; 	// The smallest CRF
+					metrics.victimChosen(start);
+					evict(frame);
+				}
+
+				load(index, frame);
+				crf[frame] = 1;
+				last[frame] = memAccess;
+				key[frame] = lambda * memAccess;
+
+				if (room) {
+					heap[heapSize] = frame;
+					slot[frame] = heapSize;
+					siftUp(heapSize++);
+				} else {
+					siftDown(0); 	// The new page took the victim's place at the root
+				}
+			}
+
+			if (decay > 0 && ++sinceDecay == decay) {
+				for (int frame = 0; frame < usedFrames; frame++) { 	// Halving every CRF lowers every key by
+					crf[frame] *= 0.5; 								// the same amount, so the heap stays valid
+					key[frame] -= 1;
+				}
+				sinceDecay = 0;
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to move the frame at a heap position up to its place
+	 *
+	 * @param i the heap position
+	 */
+	private void siftUp(int i) {
+		int frame = heap[i];
+		double k = key[frame];
+		while (i > 0) {
+			int parent = (i - 1) >>> 1;
+			if (key[heap[parent]] <= k)
+				break;
+			heap[i] = heap[parent];
+			slot[heap[i]] = i;
+			i = parent;
+		}
+		heap[i] = frame;
+		slot[frame] = i;
+	}
+
+	/**
+	 * Helper function to move the frame at a heap position down to its place
+	 *
+	 * @param i the heap position
+	 */
+	private void siftDown(int i) {
+		int frame = heap[i];
+		double k = key[frame];
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= heapSize)
+				break;
+			if (child + 1 < heapSize && key[heap[child + 1]] < key[heap[child]])
+				child++;
+			if (key[heap[child]] >= k)
+				break;
+			heap[i] = heap[child];
+			slot[heap[i]] = i;
+			i = child;
+		}
+		heap[i] = frame;
+		slot[frame] = i;
+	}
+}
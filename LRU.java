@@ -1,5 +1,4 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.IOException;
 
 
 /**
@@ -8,140 +7,121 @@ import java.io.FileReader;
  * eviction, the page that was last accessed the 
  * furthest in the past is chosen. 
  * 
+ * The frames of RAM are threaded onto an intrusive
+ * doubly linked recency list kept in two int arrays
+ * indexed by frame number. Every access moves its
+ * frame to the most recently used end of the list, so
+ * the list is ordered by logical access time and the
+ * victim is always the frame at the least recently
+ * used end. Hits and faults both cost O(1) no matter
+ * how many frames RAM has, and no wall-clock time is
+ * involved, so results are deterministic.
+ * 
  * @author Steven Montalbano
  *
  */
 public class LRU extends PRA {
 
-	public LRU() {
-		super();
+	private final int[] newer; 	// The next more recently used frame of each frame, or EMPTY
+	private final int[] older; 	// The next less recently used frame of each frame, or EMPTY
+	private int mru; 			// The most recently used frame, or EMPTY when RAM is empty
+	private int lru; 			// The least recently used frame, or EMPTY when RAM is empty
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public LRU(int frames, int pages) {
+		super(frames, pages);
 		this.name = "LRU";
+		this.newer = new int[RAMframes];
+		this.older = new int[RAMframes];
+		this.mru = this.lru = EMPTY;
 	}
 
 	@Override
-	public void sim(String traceFile) {
+	public void sim(TraceReader trace) throws IOException {
 
-		String line; 	// Each line read in from the trace file
-		char mode; 		// The mode character on each memory instruction; l == load, s == store
-		long hex; 		// The long representation of the hex memory address
 		int index; 		// The index into the Page Table for the cur memory instruction
-		PTE tmp; 		// A tmp PageTableEntry reference used for shuffling PTEs across RAM and the Page Table
-		PTE victim; 	// The PTE selected by the algorithm to be evicted
-
-		try {
-
-			BufferedReader buf = new BufferedReader(new FileReader(traceFile));
-
-			while (buf.ready()) {
-
-				line = buf.readLine(); 	// Get the next line of the trace file
-				mode = line.charAt(0); 	// Parse the mode char from the first position of the String line
-				hex = Long.decode(line.substring(2)); // Parse the hex memory address of the page into a long
-				index = (int) (hex >> 12); 	// The 12 left most bits are an offset that does not apply to this simulation.
-
-				debugPrint(String.format("Index read in == %d\n", index));
-
-				if (!pageTable.containsKey(index)) { 	// New PTE seen, not in Page Table or RAM (since all things in RAM
-														// will be in the PT)
-					tmp = new PTE(index); 		// Create a new PTE
-
-					pageTable.put(index, tmp); 	// Insert the new PTE into the Page Table
 
-					// !!!!!!!!!!!!!!!!!!!!!!!!!!!
-					// TODO can i access these ^ protected fields like this or do I need
-					// getters/setters?
-					// !!!!!!!!!!!!!!!!!!!!!!!!!!!
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
 
-				} else 		// This memory addr has been seen before, A PTE should exist
-					tmp = pageTable.get(index); // Get this PTE from its index in the Page Table
+		while (trace.next()) { 	// Decode the next memory access of the trace file
 
-				if(mode == 's')
-					tmp.dirty = true;
-				
-				if (RAM.containsKey(index)) { // Page hit
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
 
-					debugPrint(String.format("Page hit on index %d\n", index));
+			if(trace.isStore())
+				markDirty(index);
 
-					updateAccess(tmp); 	// Update last access time and update PQ position accordingly
+			if (isResident(index)) { // Page hit
 
-				} else { 	// Page Fault, must add the tmp PTE into RAM. Check if eviction is needed before
-							// loading into RAM
-					pageFaults++;
+				hit(index);
+				moveToFront(frameOf(index)); 	// Move the page's frame to the most recently used end
 
-					debugPrint(String.format("Page fault on index %d\n", index));
-					debugPrint("\tPQ size == " + pq.size() + "\n");
+			} else { 	// Page Fault, must load the page into RAM. Check if eviction is needed before
+						// loading into RAM
+				fault(index);
 
-					if (RAMhasRoom()) { 		// RAM is not full, can insert PTE without issue
-						debugPrint("\tRAM size == " + RAM.size() + "\n");
-						debugPrint("\tPF: No eviction needed\n", 1);
-						updateAccess(tmp); 		// Update last access time and update PQ position accordingly
-						RAM.put(index, tmp); 	// Load the PTE into RAM
+				if (RAMhasRoom()) { 		// RAM is not full, can insert the page without issue
+					pushFront(load(index)); // Load the page into RAM as the most recently used frame
 
-					} else {
-						debugPrint("\tRAM size == " + RAM.size() + "\n");
-						debugPrint("\tRAM is full, must evict a PTE... \n");
+				} else {
+					long start = metrics.victimStart();
+					int frame = lru; 		// The frame holding the Least Recently Used page
+					metrics.victimChosen(start);
 
-						victim = pq.poll(); // Get and remove the highest priority PTE, which was the one Least Recently
-											// Used one
+					evict(frame); 			// Write the victim back to disk if dirty and unmap it from RAM
 
-						if (victim.dirty) { // If the PTE's dirty bit is set, its value must be updated in the Page
-											// Table before eviction
-//							pageTable.remove(victim.baseAddr);
-//							pageTable.put(victim.baseAddr, victim);
-
-							diskWrites++;
-							victim.dirty = false;
-						}
-						
-						evictions.add(victim.baseAddr);
-
-						debugPrint(String.format("\tPF: Evicting page # %d \n", victim.baseAddr), 1);
-//						System.out.println("Evicting page #" + victim.baseAddr);
+					// The page can now be loaded into the victim's frame, which becomes the most recently used
+					load(index, frame);
+					moveToFront(frame);
+				}
+			}
 
-						victim.valid = false; // Victim no longer mapped to physical memory, valid becomes false
-						RAM.remove(victim.baseAddr, victim); // Remove the victim from RAM
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
 
-						// The tmp PTE can now be loaded into RAM
-						updateAccess(tmp);
-						tmp.valid = true; //
-						RAM.put(tmp.baseAddr, tmp); // Load the PTE into RAM
-					}
-				}
+		metrics.finish();
 
-				memAccess++; // Increment total memory accesses on every loop iteration
-			} // End while
+	} // End sim
 
-			buf.close();
+	/**
+	 * Helper function to unlink a frame from the recency list and relink it at the
+	 * most recently used end.
+	 *
+	 * @param frame the frame that was just accessed
+	 */
+	private void moveToFront(int frame) {
 
-			debugPrint("----------------------------\n", 1);
-			
-			debugPrint(evictions.toString(), 3);
+		if (frame == mru)
+			return;
 
-//			debugPrint(String.format("PageTable size == %d\n", pageTable.size()), 1);
+		int o = older[frame], n = newer[frame]; // n is never EMPTY since the frame is not the mru
 
-		} catch (Exception e) {
-			System.out.println("\n\nError running Least Recently Used!\n");
-			e.printStackTrace();
-		} // End Try-Catch
+		older[n] = o; 	// Unlink the frame from its neighbors
+		if (o != EMPTY)
+			newer[o] = n;
+		else
+			lru = n;
 
-	} // End sim
+		pushFront(frame);
+	}
 
 	/**
-	 * Helper function to update entry's lastAccessed time and make sure it remains
-	 * in sorted order of the Priority Queue. First checks that entry already exists
-	 * in the PQ, if so it removes it. Entry's lastAccess time is then updated to
-	 * the current system time before finally being added into the PQ which sorts it
-	 * according to access time. (Each remove and add call cause PQ to heapify())
-	 * 
-	 * @param entry the PTE to be updated
+	 * Helper function to link a frame that is not on the recency list at the most
+	 * recently used end.
+	 *
+	 * @param frame the frame to link
 	 */
-	private void updateAccess(PTE entry) {
-
-		if (pq.contains(entry))
-			pq.remove(entry);
-
-		entry.lastAccess = System.nanoTime();
-		pq.add(entry);
+	private void pushFront(int frame) {
+
+		newer[frame] = EMPTY;
+		older[frame] = mru;
+		if (mru != EMPTY)
+			newer[mru] = frame;
+		else
+			lru = frame;
+		mru = frame;
 	}
 
 }
@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Computes the exact number of LRU page faults for every number of frames from
+ * 1 to a limit in a single pass over a trace, using Mattson's stack algorithm.
+ * 
+ * LRU has the inclusion property: the pages held in c frames are always the c
+ * most recently used pages. So an access faults with c frames exactly when its
+ * stack distance, the number of distinct pages touched since the page was last
+ * used (counting itself), is greater than c. One pass that builds a histogram
+ * of stack distances gives the fault count at every frame size.
+ * 
+ * Stack distances are counted with a Fenwick tree over time slots: each page
+ * marks the slot of its most recent access, and the distance of an access is
+ * the number of marks after the page's previous slot. Slots are renumbered
+ * whenever they run out, so the tree stays proportional to the number of
+ * distinct pages and every access costs O(log pages).
+ * 
+ * @see LRU.java
+ * @author Steven Montalbano
+ */
+public class LRUCurve {
+
+	private static final int MIN_SLOTS = 1 << 16; // The smallest number of time slots in the Fenwick tree
+
+	private final int maxFrames; 	// The largest number of frames to compute faults for
+	private final long[] hist; 		// hist[d] = the number of accesses with stack distance d, for d <= maxFrames
+	private long far; 				// The number of first accesses and accesses with distance > maxFrames
+	private long memAccess; 		// The number of memory accesses in the trace
+
+	private final int[] pageSlot; 	// The time slot of each page's most recent access, or -1 if never accessed
+	private int[] slotPage; 		// The page whose most recent access is in each time slot, or -1
+	private int[] tree; 			// Fenwick tree (1-indexed) counting the marked time slots
+	private int nextSlot; 			// The time slot of the next access
+	private int live; 				// The number of marked time slots == distinct pages seen
+
+	/**
+	 * @param maxFrames the largest number of frames to compute faults for
+	 * @param pages     the size of the Page Table
+	 */
+	public LRUCurve(int maxFrames, int pages) {
+		this.maxFrames = maxFrames;
+		this.hist = new long[maxFrames + 1];
+		this.pageSlot = new int[pages];
+		this.slotPage = new int[MIN_SLOTS];
+		this.tree = new int[MIN_SLOTS + 1];
+		Arrays.fill(pageSlot, -1);
+		Arrays.fill(slotPage, -1);
+	}
+
+	/**
+	 * Runs the single pass over the trace
+	 *
+	 * @param trace the TraceReader tied to the trace file
+	 * @throws IOException if the trace can not be read or has a malformed line
+	 */
+	public void run(TraceReader trace) throws IOException {
+
+		while (trace.next()) {
+
+			int page = trace.page();
+			int slot = pageSlot[page];
+
+			if (slot == -1) { 		// First access to the page, a fault at every size
+				far++;
+				live++;
+			} else {
+				int distance = live - prefix(slot) + 1; // Distinct pages touched after the previous access, plus itself
+				if (distance <= maxFrames)
+					hist[distance]++;
+				else
+					far++;
+
+				add(slot, -1); 		// Unmark the previous access
+				slotPage[slot] = -1;
+			}
+
+			if (nextSlot == slotPage.length)
+				compact();
+
+			add(nextSlot, 1); 		// Mark this access as the page's most recent
+			slotPage[nextSlot] = page;
+			pageSlot[page] = nextSlot++;
+
+			memAccess++;
+		}
+	}
+
+	/**
+	 * @param frames a number of frames from 1 to maxFrames
+	 * @return the number of LRU page faults with that many frames
+	 */
+	public long getPageFaults(int frames) {
+		long faults = far;
+		for (int d = frames + 1; d <= maxFrames; d++)
+			faults += hist[d];
+		return faults;
+	}
+
+	/**
+	 * @return the LRU page faults for every number of frames; index c holds the
+	 *         faults with c frames, index 0 is unused
+	 */
+	public long[] getFaultCurve() {
+		long[] faults = new long[maxFrames + 1];
+		long sum = far;
+		for (int c = maxFrames; c >= 1; c--) { // Suffix sums of the histogram
+			faults[c] = sum;
+			sum += hist[c];
+		}
+		return faults;
+	}
+
+	public long getMemAccess() {
+		return memAccess;
+	}
+
+	// Fenwick tree helpers
+
+	/**
+	 * @return the number of marked time slots from 0 to slot inclusive
+	 */
+	private int prefix(int slot) {
+		int sum = 0;
+		for (int i = slot + 1; i > 0; i -= i & -i)
+			sum += tree[i];
+		return sum;
+	}
+
+	private void add(int slot, int delta) {
+		for (int i = slot + 1; i < tree.length; i += i & -i)
+			tree[i] += delta;
+	}
+
+	/**
+	 * Renumbers the marked time slots to 0..live-1 in the same order once every
+	 * slot has been used, growing the tree if more than half of it is marked,
+	 * and rebuilds the Fenwick tree in linear time.
+	 */
+	private void compact() {
+
+		int slots = slotPage.length;
+		if (live * 2 > slots)
+			slots <<= 1;
+
+		int[] pages = new int[slots];
+		Arrays.fill(pages, -1);
+
+		int n = 0;
+		for (int s = 0; s < nextSlot; s++) {
+			if (slotPage[s] != -1) {
+				pages[n] = slotPage[s];
+				pageSlot[pages[n]] = n;
+				n++;
+			}
+		}
+
+		slotPage = pages;
+		nextSlot = n;
+
+		tree = new int[slots + 1];
+		for (int i = 1; i <= slots; i++) { // Linear time Fenwick build over the marks 0..n-1
+			tree[i] += i <= n ? 1 : 0;
+			int parent = i + (i & -i);
+			if (parent <= slots)
+				tree[parent] += tree[i];
+		}
+	}
+}
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent LRU with local replacement, for traces of several
+ * processes. Every process has a quota of frames and its own LRU list, and a
+ * process at its quota that faults replaces its own least recently used page.
+ * A process under its quota takes a free frame, or else a frame from a process
+ * over its quota. The quota comes from one of three allocation policies:
+ *
+ *   FIXED         every process gets an equal share of RAM, recomputed when a
+ *                 new process shows up
+ *   PROPORTIONAL  every process gets a share of RAM in proportion to its size,
+ *                 the distinct pages it has touched, recomputed when a new
+ *                 process shows up and every RAMframes page faults
+ *   PFF           the Page Fault Frequency allocator; a process that faults
+ *                 again within the window of its own accesses grows by a
+ *                 frame, and one that faults after a longer interval first
+ *                 releases every page it has not used since its last fault
+ *
+ * Quotas are at least one frame. A process under its quota when RAM is full
+ * and no process is over its quota takes the frame at a clock hand over RAM,
+ * whoever holds it. Under PFF that is how a growing process takes frames from
+ * the others, since no process is ever over its quota.
+ *
+ * The per process recency lists are threaded through the frames of RAM in
+ * two int arrays like in LRU, and the processes over their quota are kept on
+ * an intrusive list of their own, so every access is O(1). The per process
+ * state is in arrays indexed by address space that grow with the number of
+ * processes.
+ *
+ * @see LRU.java, RadixPageTable.java
+ * @author Steven Montalbano
+ */
+public class LocalLRU extends PRA {
+
+	public static final int FIXED = 0, PROPORTIONAL = 1, PFF = 2; // The allocation policies
+	public static final String[] POLICY_NAMES = { "fixed", "proportional", "pff" };
+
+	private final int policy; 			// The allocation policy
+	private long window; 				// The PFF window in the faulting process's own memory accesses
+
+	private final int[] newer, older; 	// The next more and less recently used frame of the same process, or EMPTY
+	private final long[] lastUse; 		// The process virtual time of each frame's last use
+	private final int[] freeFrames; 	// A stack of the free frames of RAM
+	private int freeCount; 				// The number of free frames
+	private final long[] seen; 			// A bit per page, set once the page has been touched
+	private int hand; 					// The frame taken when no process can give one up
+
+	private int processCount; 			// The number of processes seen
+	private int[] mru, lru; 			// The most and least recently used frame of each process, or EMPTY
+	private int[] resident, quota; 		// The number of frames each process holds, and should hold
+	private long[] size; 				// The number of distinct pages each process has touched
+	private long[] vtime, lastFault; 	// Each process's own memory accesses so far, and at its last fault
+	private int[] overNext, overPrev; 	// The list of processes over their quota, or EMPTY
+	private boolean[] over; 			// Is each process on the over quota list?
+	private int overHead; 				// The first process over its quota, or EMPTY
+	private long totalSize; 			// The sum of the process sizes
+	private long faultsSinceRebalance; 	// The number of page faults since the quotas were last recomputed
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 * @param policy the allocation policy: FIXED, PROPORTIONAL or PFF
+	 */
+	public LocalLRU(int frames, int pages, int policy) {
+		super(frames, pages);
+		if (policy < FIXED || policy > PFF)
+			throw new IllegalArgumentException("Unknown allocation policy " + policy);
+
+		this.name = "LRU (local, " + POLICY_NAMES[policy] + ")";
+		this.policy = policy;
+		this.window = RAMframes;
+		this.newer = new int[RAMframes];
+		this.older = new int[RAMframes];
+		this.lastUse = new long[RAMframes];
+		this.freeFrames = new int[RAMframes];
+		for (int frame = RAMframes - 1; frame >= 0; frame--)
+			freeFrames[freeCount++] = frame;
+		this.seen = new long[(PTpages + 63) >>> 6];
+		this.overHead = EMPTY;
+
+		int capacity = 16;
+		this.mru = new int[capacity];
+		this.lru = new int[capacity];
+		this.resident = new int[capacity];
+		this.quota = new int[capacity];
+		this.size = new long[capacity];
+		this.vtime = new long[capacity];
+		this.lastFault = new long[capacity];
+		this.overNext = new int[capacity];
+		this.overPrev = new int[capacity];
+		this.over = new boolean[capacity];
+	}
+
+	/**
+	 * @param policy an allocation policy name, as in POLICY_NAMES
+	 * @return the allocation policy
+	 */
+	public static int policyOf(String policy) {
+		int p = Arrays.asList(POLICY_NAMES).indexOf(policy.toLowerCase());
+		if (p < 0)
+			throw new IllegalArgumentException("The allocation policy must be fixed, proportional or pff");
+		return p;
+	}
+
+	/**
+	 * Sets the PFF window
+	 *
+	 * @param window the longest interval between two page faults of a process,
+	 *               in its own memory accesses, that makes it grow
+	 */
+	public void setWindow(long window) {
+		if (window < 1)
+			throw new IllegalArgumentException("The PFF window must be positive");
+		this.window = window;
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+			int p = processOf(index);
+			if (p >= processCount)
+				addProcesses(p);
+			vtime[p]++;
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit
+				hit(index);
+				int frame = frameOf(index);
+				unlink(p, frame);
+				pushFront(p, frame);
+
+			} else { 	// Page Fault
+				fault(index);
+
+				if ((seen[index >>> 6] & (1L << index)) == 0) { // The process grows
+					seen[index >>> 6] |= 1L << index;
+					size[p]++;
+					totalSize++;
+					if (policy == PROPORTIONAL && size[p] == 1)
+						rebalance(); 	// A new process, now that it has a size
+				}
+				if (policy == PFF)
+					pff(p);
+
+				long start = metrics.victimStart();
+				int frame = frameFor(p);
+				metrics.victimChosen(start);
+
+				load(index, frame);
+				pushFront(p, frame);
+				resident[p]++;
+				checkQuota(p);
+
+				if (policy == PROPORTIONAL && ++faultsSinceRebalance >= RAMframes)
+					rebalance();
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	// Helper Methods
+
+	/**
+	 * Helper function to find the frame for a page fault of a process, evicting
+	 * a page if there is no free frame to use
+	 *
+	 * @param p the faulting process
+	 * @return the frame to load the page into
+	 */
+	private int frameFor(int p) {
+		if (resident[p] >= quota[p]) 	// At its quota, local replacement
+			return release(lru[p]);
+		if (freeCount > 0)
+			return freeFrames[--freeCount];
+		if (overHead != EMPTY)
+			return release(lru[overHead]); 	// The least recently used page of a process over its quota
+
+		int frame = hand; 	// Nobody is over their quota; take the frame at the hand
+		hand = frame + 1 == RAMframes ? 0 : frame + 1;
+		return release(frame);
+	}
+
+	/**
+	 * Helper function for the PFF allocator, at a page fault of a process
+	 *
+	 * @param p the faulting process
+	 */
+	private void pff(int p) {
+		if (vtime[p] - lastFault[p] > window) { // Faulting rarely; shrink to the pages used since the last fault
+			while (resident[p] > 0 && lastUse[lru[p]] < lastFault[p])
+				freeFrames[freeCount++] = release(lru[p]);
+		}
+		lastFault[p] = vtime[p];
+		quota[p] = resident[p] + 1; 	// Grow by the faulting page
+		checkQuota(p);
+	}
+
+	/**
+	 * Helper function to evict the page in a frame, taking it off its process's
+	 * list
+	 *
+	 * @param frame the frame of the victim
+	 * @return the frame, now empty
+	 */
+	private int release(int frame) {
+		int owner = processOf(RAM[frame]);
+		unlink(owner, frame);
+		resident[owner]--;
+		checkQuota(owner);
+		evict(frame);
+		return frame;
+	}
+
+	/**
+	 * Helper function to recompute the quota of every process for the FIXED and
+	 * PROPORTIONAL policies
+	 */
+	private void rebalance() {
+		faultsSinceRebalance = 0;
+		for (int p = 0; p < processCount; p++) {
+			quota[p] = Math.max(1, policy == FIXED ? RAMframes / processCount
+					: (int) (RAMframes * size[p] / Math.max(1, totalSize)));
+			checkQuota(p);
+		}
+	}
+
+	/**
+	 * Helper function to grow the per process arrays for a new address space
+	 *
+	 * @param p the new address space
+	 */
+	private void addProcesses(int p) {
+		if (p >= mru.length) {
+			int capacity = Math.max(p + 1, mru.length << 1);
+			mru = grow(mru, capacity);
+			lru = grow(lru, capacity);
+			resident = Arrays.copyOf(resident, capacity);
+			quota = Arrays.copyOf(quota, capacity);
+			size = Arrays.copyOf(size, capacity);
+			vtime = Arrays.copyOf(vtime, capacity);
+			lastFault = Arrays.copyOf(lastFault, capacity);
+			overNext = Arrays.copyOf(overNext, capacity);
+			overPrev = Arrays.copyOf(overPrev, capacity);
+			over = Arrays.copyOf(over, capacity);
+		}
+		for (int q = processCount; q <= p; q++)
+			mru[q] = lru[q] = EMPTY;
+		processCount = p + 1;
+		if (policy == FIXED)
+			rebalance();
+	}
+
+	private static int[] grow(int[] a, int capacity) {
+		int[] grown = Arrays.copyOf(a, capacity);
+		Arrays.fill(grown, a.length, capacity, EMPTY);
+		return grown;
+	}
+
+	/**
+	 * Helper function to put a process on or take it off the over quota list
+	 *
+	 * @param p the process whose resident frames or quota changed
+	 */
+	private void checkQuota(int p) {
+		boolean isOver = resident[p] > quota[p];
+		if (isOver == over[p])
+			return;
+		over[p] = isOver;
+		if (isOver) {
+			overPrev[p] = EMPTY;
+			overNext[p] = overHead;
+			if (overHead != EMPTY)
+				overPrev[overHead] = p;
+			overHead = p;
+		} else {
+			if (overPrev[p] != EMPTY)
+				overNext[overPrev[p]] = overNext[p];
+			else
+				overHead = overNext[p];
+			if (overNext[p] != EMPTY)
+				overPrev[overNext[p]] = overPrev[p];
+		}
+	}
+
+	/**
+	 * Helper function to insert a frame at the most recently used end of its
+	 * process's list
+	 *
+	 * @param p     the process
+	 * @param frame the frame
+	 */
+	private void pushFront(int p, int frame) {
+		lastUse[frame] = vtime[p];
+		newer[frame] = EMPTY;
+		older[frame] = mru[p];
+		if (mru[p] != EMPTY)
+			newer[mru[p]] = frame;
+		else
+			lru[p] = frame;
+		mru[p] = frame;
+	}
+
+	/**
+	 * Helper function to unlink a frame from its process's list
+	 *
+	 * @param p     the process
+	 * @param frame the frame
+	 */
+	private void unlink(int p, int frame) {
+		if (newer[frame] != EMPTY)
+			older[newer[frame]] = older[frame];
+		else
+			mru[p] = older[frame];
+		if (older[frame] != EMPTY)
+			newer[older[frame]] = newer[frame];
+		else
+			lru[p] = newer[frame];
+	}
+
+	@Override
+	public String extraStats() {
+		return policy == PFF ? "PFF window: " + window + "\n" : "";
+	}
+}
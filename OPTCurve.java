@@ -0,0 +1,122 @@
+import java.util.Arrays;
+
+/**
+ * Computes the number of OPT page faults for every number of frames from 1 to
+ * a limit in a single pass over a trace, using Mattson's priority stack
+ * algorithm.
+ * 
+ * OPT is a stack algorithm: with the priority of a page being how soon it is
+ * next accessed, the pages held in c frames are always the top c pages of one
+ * priority stack. On every access the page moves to the top of the stack and
+ * the pages above its old position are pushed down one at a time, keeping the
+ * higher priority page at each level and carrying the lower priority one
+ * further down. An access faults with c frames exactly when the page was not
+ * in the top c positions of the stack.
+ * 
+ * Priorities come from the precomputed next-use array, with the same keys and
+ * LRU tie-break between never used again pages as OPT. The stack is cut off at
+ * the limit, since pages never rise in the stack without being accessed, so
+ * each access costs O(depth) bounded by the limit.
+ * 
+ * @see OPT.java
+ * @author Steven Montalbano
+ */
+public class OPTCurve {
+
+	private final int maxFrames; 	// The largest number of frames to compute faults for
+	private final long[] hist; 		// hist[d] = the number of accesses found at stack depth d, for d <= maxFrames
+	private long far; 				// The number of accesses not in the top maxFrames of the stack
+	private long memAccess; 		// The number of memory accesses in the trace
+
+	private final int[] stack; 		// The top maxFrames pages of the priority stack, stack[0] is the top
+	private int size; 				// The number of pages in stack
+	private final int[] depth; 		// The position of each page in stack, or -1
+	private final long[] key; 		// The OPT key of each page; the smaller the key the higher the priority
+
+	/**
+	 * @param maxFrames the largest number of frames to compute faults for
+	 * @param pages     the size of the Page Table
+	 */
+	public OPTCurve(int maxFrames, int pages) {
+		this.maxFrames = maxFrames;
+		this.hist = new long[maxFrames + 1];
+		this.stack = new int[maxFrames];
+		this.depth = new int[pages];
+		this.key = new long[pages];
+		Arrays.fill(depth, -1);
+	}
+
+	/**
+	 * Runs the single pass over a decoded trace
+	 *
+	 * @param trace the decoded trace
+	 * @param pages the size of the Page Table
+	 */
+	public void run(DecodedTrace trace, int pages) {
+
+		int[] nextUse = trace.nextUse(pages);
+
+		for (int t = 0; t < trace.length(); t++) {
+
+			int page = trace.get(t) >>> 1;
+			int d = depth[page];
+
+			if (d == -1) 	// Not in the top maxFrames pages, a fault at every size
+				far++;
+			else
+				hist[d + 1]++;
+
+			key[page] = DecodedTrace.futureKey(nextUse[t], t);
+
+			if (d != 0) { 	// Move the page to the top, pushing the pages above its old position down
+				int carry = size > 0 ? stack[0] : -1; // The page being pushed down
+				int end = d == -1 ? size : d; // The position the pushed down pages stop at
+
+				stack[0] = page;
+				depth[page] = 0;
+
+				for (int i = 1; i < end; i++) {
+					int other = stack[i];
+					if (key[carry] < key[other]) { // Keep the higher priority page at this level
+						stack[i] = carry;
+						depth[carry] = i;
+						carry = other;
+					}
+				}
+
+				if (carry != -1) {
+					if (end < maxFrames) { 	// Place the last carried page in the freed slot
+						stack[end] = carry;
+						depth[carry] = end;
+						if (d == -1)
+							size++;
+					} else {				// It falls out of the top maxFrames
+						depth[carry] = -1;
+					}
+				} else if (d == -1) {
+					size++;
+				}
+			}
+
+			memAccess++;
+		}
+	}
+
+	/**
+	 * @return the OPT page faults for every number of frames; index c holds the
+	 *         faults with c frames, index 0 is unused
+	 */
+	public long[] getFaultCurve() {
+		long[] faults = new long[maxFrames + 1];
+		long sum = far;
+		for (int c = maxFrames; c >= 1; c--) { // Suffix sums of the histogram
+			faults[c] = sum;
+			sum += hist[c];
+		}
+		return faults;
+	}
+
+	public long getMemAccess() {
+		return memAccess;
+	}
+}
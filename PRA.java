@@ -1,82 +1,131 @@
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.PriorityQueue;
+import java.io.IOException;
+import java.util.Arrays;
 
 /**
  * An Abstract Page Replacement Algorithm Class that will be the ancestor of the
  * actual PRA implementations. This serves as a template with the fields and
  * accessors that all PRA implementations will need.
- * 
+ *
+ * The Page Table and Physical Memory are kept as flat primitive arrays: the
+ * page table is indexed by page number and holds packed PTEs (see PTE.java),
+ * and RAM is indexed by frame number and holds the page number loaded into
+ * that frame. Nothing is allocated per memory access.
+ *
  * @see SecondChance.java, LRU.java, OPT.java
  * @author Steven Montalbano
  *
  */
 public abstract class PRA {
 
+	protected static final int EMPTY = -1; // Marks a frame of RAM that has no page loaded into it
+
 	protected String name; // The Algorithms name
-	protected static int RAMframes; // The size of physical memory
-	protected static int PTpages; // The size of the whole Page Table
-	protected int memAccess, pageFaults, diskWrites; // Statistics tracking
-	protected HashMap<Integer, PTE> pageTable; // The entire Page Table in virtual memory; key = Page Base Address,
-												// value = PageTabelEntry object
-	protected HashMap<Integer, PTE> RAM; // Physical Memory
-	protected HashMap<Integer, LinkedList<Integer>> future; // The future memory accesses of the PTE whos addr == (key);
-															// used in OPT
-	protected PriorityQueue<PTE> pq; // Priority Queue used as MinHeap for removal of the LRU accessed PTE in RAM;
-										// used in LRU and OPT
-	LinkedList<Integer> evictions;
+	protected final int RAMframes; // The size of physical memory
+	protected final int PTpages; // The size of the whole Page Table
+	protected boolean mappedInput; // Should trace files be memory mapped instead of streamed?
+	protected boolean pipelined; // Should trace files be decoded on a separate thread?
+	protected int pageShift = -1; // The number of offset bits of a page, or -1 for the trace file's own until one
+									// is simulated
+	protected long memAccess, pageFaults, diskWrites; // Statistics tracking
+	protected final RunMetrics metrics; // Phase timings and victim selection latencies
+	protected int[] pageTable; // The entire Page Table in virtual memory; index = page number,
+								// value = packed PTE (state bits and frame number)
+	protected int[] RAM; // Physical Memory; index = frame number, value = page number loaded in that frame
+	protected int usedFrames; // The number of frames of RAM that have been filled
+	protected SimulationListener listener; // Receives every hit, fault and eviction, or null
+	protected RadixPageTable radix; // Maps the page ids of the trace file last simulated to virtual page numbers,
+									// or null if they are the same
+	protected ProcessStats processes; // The statistics of each process, or null when not kept
 	/**
 	 * Protected Constructor; called via super() by the child classes to initialize
-	 * the HashMaps to store virtual and physical memory
+	 * the arrays to store virtual and physical memory. All of the state of a
+	 * simulation lives in its PRA instance, so any number of simulations can run
+	 * in one JVM at the same time.
+	 *
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
 	 */
-	protected PRA() {
-		
-		 evictions = new LinkedList<>();
+	protected PRA(int frames, int pages) {
+
+		this.RAMframes = frames;
+		this.PTpages = pages;
 
 //		debugPrint("PRA const called, RAMframes = " + RAMframes+ "\n");
 
 		this.memAccess = this.pageFaults = this.diskWrites = 0; // Init vars to 0
-		this.pageTable = new HashMap<>(PTpages); // Initialize the PT to be the proper size based on the memory address
-													// length
-		this.RAM = new HashMap<>(RAMframes); // Initialize the Physical Memory to have the number of frames specified
-												// from cmd line
-		// Note: Setting 1.1F as the Load Factor stops the HashTable from dynamically
-		// upsizing until its (size == capacity*1.1) which should never happen
-		// By default, Java uses 75% as the load factor which would cause RAM to never
-		// become full causing page evictions
-
-		if (this instanceof LRU) // LRU needs a MinHeap to select the PTE with the oldest lastAccess time for eviction
-			this.pq = new PriorityQueue<PTE>(RAMframes);
-
-		else if (this instanceof OPT) { // The OPT algorithm requires a perfect knowledge of the future memory accesses
-										// for a given PTE.
-			this.future = new HashMap<>(); // The key will = the PTE's page number, the val will = a LinkedList of
-											// Integers where each element of the
-											// LinkedList will be a line number of the tracefile where the PTE whose
-											// addr = key is accessed
-
-			this.pq = new PriorityQueue<PTE>(RAMframes); // OPT uses a MinHeap in the event where multiple PTEs are not
-														 // accessed again in the future; follow LRU to select victim for
-														 // eviction
+		this.metrics = new RunMetrics();
+		this.pageTable = new int[PTpages]; // Initialize the PT to be the proper size based on the memory address
+											// length, every entry starts out invalid, clean and unreferenced
+		this.RAM = new int[RAMframes]; 	// Initialize the Physical Memory to have the number of frames specified
+										// from cmd line
+		Arrays.fill(RAM, EMPTY);
+		this.usedFrames = 0;
+	}
+
+	/**
+	 * Runs the simulation over a text or binary trace file. Opens the shared
+	 * TraceReader over the file and hands it to run(source).
+	 *
+	 * @param traceFile the name of the trace file with the memory accesses
+	 */
+	public void sim(String traceFile) {
+		TraceReader file = null;
+		try {
+			file = TraceReader.open(traceFile, mappedInput);
+		} catch (IOException e) {
+			System.out.printf("\n\nError running %s!\n", name);
+			e.printStackTrace();
+			return;
+		}
+		run(file);
+	}
+
+	/**
+	 * Runs the simulation over a trace that has not been read yet, a trace file
+	 * or a generated workload. Limits the trace to as many distinct pages as the
+	 * Page Table holds and hands it to the implementation of the PRA that extends
+	 * this class.
+	 *
+	 * @param source the trace, closed once the simulation is done
+	 */
+	public void run(TraceReader source) {
+		try {
+			source.setPageLimit(PTpages);
+			if (pageShift >= 0)
+				source.setPageShift(pageShift);
+			pageShift = source.pageShift();
+		} catch (IOException e) {
+			System.out.printf("\n\nError running %s!\n", name);
+			e.printStackTrace();
+			return;
+		}
+
+		try (TraceReader trace = pipelined ? new PipelinedTraceReader(source) : source) {
+			radix = trace.radixTable();
+			sim(trace);
+		} catch (IOException e) {
+			System.out.printf("\n\nError running %s!\n", name);
+			e.printStackTrace();
 		}
 	}
 
 	/**
 	 * The actual implementation of the PRA that extends this class
-	 * 
-	 * @param buf the BufferedReader created from within VMSim tied to the trace
-	 *            file with the memory accesses
+	 *
+	 * @param trace the TraceReader created from within sim(traceFile) tied to the
+	 *              trace file with the memory accesses
+	 * @throws IOException if the trace can not be read or has a malformed line
 	 */
-	public abstract void sim(String traceFile);
+	public abstract void sim(TraceReader trace) throws IOException;
 
 	/**
 	 * Utility method that acts as wrapper for the debugPrint(s) method declared in
 	 * VMSim. Simply calls VMSim's version of debugPrint() to keep all DEBUG_MODE
 	 * logic centralized inside of the main simulation driver class.
-	 * 
+	 *
 	 * The protected access qualifier allows the decents of PRA to access this
 	 * without issue.
-	 * 
+	 *
 	 * @param s the string to be printed while in DEBUG_MODE
 	 */
 	protected static void debugPrint(String s) {
@@ -87,52 +136,266 @@ public abstract class PRA {
 		VMSim.debugPrint(s, level);
 	}
 
+	// Page Table and Physical Memory helpers shared by all the algorithms
+
+	/**
+	 * @param page the page number
+	 * @return true if the page is currently loaded into a frame of RAM
+	 */
+	protected final boolean isResident(int page) {
+		return (pageTable[page] & PTE.VALID) != 0;
+	}
+
+	/**
+	 * Sets the dirty bit of a page after a store instruction. The page will have
+	 * to be written to disk when it is evicted.
+	 *
+	 * @param page the page number
+	 */
+	protected final void markDirty(int page) {
+		pageTable[page] |= PTE.DIRTY;
+	}
+
+	/**
+	 * @param page the page number
+	 * @return the frame the page is loaded into; only meaningful when resident
+	 */
+	protected final int frameOf(int page) {
+		return PTE.frame(pageTable[page]);
+	}
+
+	/**
+	 * Records a page hit on a resident page
+	 *
+	 * @param page the page number accessed
+	 */
+	protected final void hit(int page) {
+		if (processes != null)
+			processes.hit(processOf(page));
+		if (listener != null)
+			listener.hit(memAccess, processOf(page), vpnOf(page), 0, frameOf(page));
+	}
+
+	/**
+	 * Records a page fault on a page that is not resident
+	 *
+	 * @param page the page number accessed
+	 */
+	protected final void fault(int page) {
+		pageFaults++;
+		if (processes != null)
+			processes.fault(processOf(page));
+		if (listener != null)
+			listener.fault(memAccess, processOf(page), vpnOf(page), 0);
+	}
+
+	/**
+	 * Loads a page into the frame of RAM passed in and maps its PTE to that
+	 * frame. The frame must be empty, or its page must have just been evicted.
+	 *
+	 * @param page  the page number being loaded
+	 * @param frame the frame number it is loaded into
+	 */
+	protected final void load(int page, int frame) {
+		RAM[frame] = page;
+		pageTable[page] = PTE.map(pageTable[page], frame);
+	}
+
+	/**
+	 * Loads a page into the next empty frame of RAM. RAMhasRoom() must be true.
+	 *
+	 * @param page the page number being loaded
+	 * @return the frame number the page was loaded into
+	 */
+	protected final int load(int page) {
+		int frame = usedFrames++;
+		load(page, frame);
+		return frame;
+	}
+
+	/**
+	 * Evicts the page loaded into a frame of RAM. If the page is dirty it is
+	 * written back to disk first. The victim's PTE is left invalid, clean and
+	 * unreferenced, and the frame is free to be reused by load(page, frame).
+	 *
+	 * @param frame the frame number of the victim
+	 * @return the page number of the victim
+	 */
+	protected final int evict(int frame) {
+		int victim = RAM[frame];
+		boolean dirty = PTE.isDirty(pageTable[victim]);
+		if (dirty) { // Dirty pages must be written back to disk before eviction
+			diskWrites++;
+			if (processes != null)
+				processes.write(processOf(victim));
+		}
+		if (listener != null) {
+			listener.evict(memAccess, processOf(victim), vpnOf(victim), 0, frame, dirty);
+			if (dirty)
+				listener.writeBack(memAccess, processOf(victim), vpnOf(victim), 0);
+		}
+		pageTable[victim] = 0;
+		RAM[frame] = EMPTY;
+		return victim;
+	}
+
+	/**
+	 * Writes the dirty page loaded into a frame of RAM back to disk ahead of its
+	 * eviction, leaving it clean and resident.
+	 *
+	 * @param frame the frame number of a dirty page
+	 */
+	protected final void writeBack(int frame) {
+		int page = RAM[frame];
+		diskWrites++;
+		if (processes != null)
+			processes.write(processOf(page));
+		pageTable[page] &= ~PTE.DIRTY;
+		if (listener != null)
+			listener.writeBack(memAccess, processOf(page), vpnOf(page), 0);
+	}
+
+	/**
+	 * @param page the page number, an index into the Page Table
+	 * @return the virtual page number of the page, which the listener events
+	 *         carry
+	 */
+	protected final long vpnOf(int page) {
+		return radix == null ? page : radix.vpnOf(page);
+	}
+
+	/**
+	 * @param page the page number, an index into the Page Table
+	 * @return the address space of the process the page belongs to
+	 */
+	protected final int processOf(int page) {
+		return radix == null ? 0 : radix.spaceOf(page);
+	}
+
 	// Accessors and Mutators
 
 	/**
-	 * Sets the amount of Physical Memory frames in RAM.
-	 * 
-	 * @param frames the number of Physical Memory frames in RAM
+	 * @return the number of Physical Memory frames in RAM
+	 */
+	public int getRAMframes() {
+		return RAMframes;
+	}
+
+	/**
+	 * Sets whether trace files are memory mapped in windows with FileChannel.map
+	 * rather than streamed through a FileInputStream.
+	 *
+	 * @param mapped true to memory map trace files
+	 */
+	public void setMappedInput(boolean mapped) {
+		mappedInput = mapped;
+	}
+
+	/**
+	 * Sets whether trace files are decoded on a separate thread that feeds the
+	 * simulation batches of memory accesses, overlapping parsing with simulation.
+	 *
+	 * @param pipelined true to decode trace files on a separate thread
+	 */
+	public void setPipelined(boolean pipelined) {
+		this.pipelined = pipelined;
+	}
+
+	/**
+	 * Attaches a listener to the simulation's events. With no listener attached
+	 * the events cost a single null check.
+	 *
+	 * @param listener the listener, or null to detach
+	 * @see SimulationListener#both(SimulationListener, SimulationListener)
+	 */
+	public void setListener(SimulationListener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * Sets whether the memory accesses, page faults and writes to disk of each
+	 * process are counted. Off by default, so single process runs pay nothing.
+	 *
+	 * @param kept true to keep statistics per process
+	 */
+	public void setProcessStats(boolean kept) {
+		this.processes = kept ? new ProcessStats() : null;
+	}
+
+	/**
+	 * @return the statistics of each process, or null when not kept
+	 */
+	public ProcessStats getProcessStats() {
+		return processes;
+	}
+
+	/**
+	 * Sets the page size trace files are read at; by default 4 KB for text
+	 * traces and the size they were written with for binary traces
+	 *
+	 * @param shift the number of offset bits of a page, log2 of the page size
 	 */
-	public static void setRAMframes(int frames) {
-		RAMframes = frames;
+	public void setPageShift(int shift) {
+		this.pageShift = shift;
 	}
 
 	/**
-	 * Sets the size of the whole Page Table that contains the memory pages that are
-	 * in and out of RAM at all times.
-	 * 
-	 * @param pages the number of pages
+	 * @return the number of offset bits of a page of the trace file last
+	 *         simulated, or of the page size set if there was none; -1 if
+	 *         neither
 	 */
-	public static void setPTsize(int pages) {
-		PTpages = pages;
+	public int getPageShift() {
+		return pageShift;
 	}
 
 	/**
-	 * Used to determine if RAM can accept another PageTableEntry(PTE), or if a PTE
-	 * must be evicted before loading a new PTE into RAM
-	 * 
-	 * @return true if RAM can accept another PTE without eviction
-	 * @return false if RAM is full and must evict a PTE first
+	 * @return the radix page table of the trace file last simulated, or null if
+	 *         the trace was not read from a file
+	 */
+	public RadixPageTable getRadixTable() {
+		return radix;
+	}
+
+	/**
+	 * Used to determine if RAM can accept another page, or if a page must be
+	 * evicted before loading a new page into RAM
+	 *
+	 * @return true if RAM can accept another page without eviction
+	 * @return false if RAM is full and must evict a page first
 	 */
 	protected boolean RAMhasRoom() {
-		return RAM.size() < RAMframes;
+		return usedFrames < RAMframes;
 	}
 
 	// Used for the final print out of the algorithm simulation
 
-	public int getMemAccess() {
+	public long getMemAccess() {
 		return memAccess;
 	}
 
-	public int getPageFaults() {
+	public long getPageFaults() {
 		return pageFaults;
 	}
 
-	public int getDiskWrites() {
+	public long getDiskWrites() {
 		return diskWrites;
 	}
 
+	/**
+	 * @return the timing metrics of the simulation
+	 */
+	public RunMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * @return statistics particular to the algorithm, printed after the common
+	 *         ones, one per line; empty if there are none
+	 */
+	public String extraStats() {
+		return "";
+	}
+
 	@Override
 	public String toString() {
 		return this.name;
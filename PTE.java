@@ -1,55 +1,85 @@
 /**
- * A class to represent a Page Table Entry. Implements the 
- * Comparable<PTE> interface to allow for MinHeap sorting
- * according to lastAccess time when inserted in a 
- * PriorityQueue. 
- * 
+ * The layout of a packed Page Table Entry. Each entry of the page table in
+ * PRA is a single int indexed by page number: the low bits hold the state
+ * information bits and the remaining high bits hold the frame number the page
+ * is mapped to while it is resident in Physical Memory (RAM).
+ *
+ * <pre>
+ *  31                             3    2     1     0
+ * +--------------------------------+-----+-----+-------+
+ * |          frame number          |dirty| ref | valid |
+ * +--------------------------------+-----+-----+-------+
+ * </pre>
+ *
+ * Keeping the entries as primitives lets the whole page table live in one
+ * flat int[] with no boxing or per-access allocation.
+ *
  * @author Steven Montalbano
  */
-public class PTE implements Comparable<PTE> {
-
-	protected int baseAddr; 	// The page number == first 22 bits of the logical memory address
-	protected int offset; 		// The offset == the last 12 bits of the logical memory address
-	protected Long lastAccess; 	// The system time this PTE was last accessed in RAM for LRU eviction
-	protected Long loaded;		// The system time this PTE was loaded into RAM for Second Chance eviction
-	protected boolean ref; 		// Has this PTE been accessed since being loaded into RAM?
-	protected boolean valid; 	// Is this PTE currently mapped to a frame in Physical Memory (RAM)?
-	protected boolean dirty; 	// Has this PTE been altered by its proccess while in RAM? If so, it 
-								// musted be written to disk before eviction.
-	
-	Long hex;
-	
-	public PTE() {
-		this.ref = this.valid = this.dirty = false; // Init state information bits to false
-		this.lastAccess = 0L;
+public final class PTE {
+
+	public static final int VALID = 1; 		// Is this page currently mapped to a frame in Physical Memory (RAM)?
+	public static final int REF = 1 << 1; 	// Has this page been accessed since being loaded into RAM?
+	public static final int DIRTY = 1 << 2; // Has this page been altered by its proccess while in RAM? If so, it
+											// must be written to disk before eviction.
+	public static final int FLAGS = VALID | REF | DIRTY;
+	public static final int FRAME_SHIFT = 3; // The frame number is stored above the state information bits
+
+	private PTE() {
+	}
+
+	/**
+	 * @param entry a packed PTE
+	 * @return true if the page is mapped to a frame in RAM
+	 */
+	public static boolean isValid(int entry) {
+		return (entry & VALID) != 0;
 	}
 
-	public PTE(int baseAddr) {
-		this.baseAddr = baseAddr;
-		this.ref = this.valid = this.dirty = false; // Init state information bits to false
-		this.lastAccess = 0L;
+	/**
+	 * @param entry a packed PTE
+	 * @return true if the page has been accessed since being loaded
+	 */
+	public static boolean isRef(int entry) {
+		return (entry & REF) != 0;
 	}
 
 	/**
-	 * Overwritten Comparable method used to store the PTE's in ascending order of
-	 * lastAccess inside of a Priority Queue which acts as a MinHeap by defult
-	 * 
-	 * @param o the PTE this will be compared to
-	 * @return a negative integer, zero, or a positive integer as this PTE's
-	 *         lastAccess time is less than, equal to, or greater than the specified
-	 *         PTE, o, passed in.
+	 * @param entry a packed PTE
+	 * @return true if the page must be written to disk before eviction
 	 */
-	@Override
-	public int compareTo(PTE o) {
-			return this.lastAccess.compareTo(o.lastAccess);		
+	public static boolean isDirty(int entry) {
+		return (entry & DIRTY) != 0;
 	}
 
-	@Override
-	public String toString() {
-//		return String.format("Index %d, lastAccess %d, ref %b, valid %b, dirty %b\n", baseAddr, lastAccess, ref, valid, dirty);
-		
-		return String.format("addr %x, ref %b\n", baseAddr, ref);
+	/**
+	 * @param entry a packed PTE
+	 * @return the frame number the page is mapped to; only meaningful when the
+	 *         entry is valid
+	 */
+	public static int frame(int entry) {
+		return entry >>> FRAME_SHIFT;
+	}
 
+	/**
+	 * Maps an entry to a frame of RAM, setting its valid bit while preserving its
+	 * dirty bit.
+	 *
+	 * @param entry the packed PTE being loaded
+	 * @param frame the frame number the page is loaded into
+	 * @return the updated packed PTE
+	 */
+	public static int map(int entry, int frame) {
+		return (frame << FRAME_SHIFT) | (entry & DIRTY) | VALID;
 	}
 
+	/**
+	 * @param page  the page number of the entry
+	 * @param entry a packed PTE
+	 * @return a readable representation of the entry for debugging
+	 */
+	public static String toString(int page, int entry) {
+		return String.format("addr %x, frame %d, valid %b, ref %b, dirty %b\n", page, frame(entry), isValid(entry),
+				isRef(entry), isDirty(entry));
+	}
 }
@@ -0,0 +1,137 @@
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A TraceReader that decodes the trace on its own thread so that reading and
+ * decoding the file overlaps with the simulation. A decoder thread drains the
+ * underlying reader into fixed-size batches of packed (page number << 1) |
+ * store bit ints, taken from a bounded ring of reusable buffers. The simulator
+ * thread walks each batch without any locking per memory access, and hands
+ * the buffer back once it is done with it. When every buffer is full the
+ * decoder blocks, so memory stays bounded no matter how far ahead it gets.
+ *
+ * @author Steven Montalbano
+ */
+public class PipelinedTraceReader extends TraceReader {
+
+	private static final int BATCH_SIZE = 1 << 14; 	// The number of memory accesses per batch
+	private static final int BUFFERS = 4; 			// The number of batches in the ring
+
+	/**
+	 * A reusable buffer of decoded memory accesses
+	 */
+	private static class Batch {
+		final int[] accesses = new int[BATCH_SIZE]; // Packed (page number << 1) | store bit
+		int count; 				// The number of memory accesses in the batch
+		boolean last; 			// Is this the final batch of the trace?
+		IOException error; 		// The error that ended the trace early, if any
+	}
+
+	private final TraceReader source; 				// The reader the decoder thread drains
+	private final BlockingQueue<Batch> free; 		// Empty buffers waiting for the decoder thread
+	private final BlockingQueue<Batch> full; 		// Decoded batches waiting for the simulator thread
+	private final Thread decoder; 					// The decoder thread
+	private Batch batch; 							// The batch the simulator thread is reading
+	private int next; 								// The index of the next memory access in batch
+
+	/**
+	 * Starts decoding a trace on a new thread
+	 *
+	 * @param source the TraceReader tied to the trace file
+	 */
+	public PipelinedTraceReader(TraceReader source) {
+		this.source = source;
+		this.radix = source.radixTable(); // Only looked up by the decoder thread before a batch is handed over
+		this.pageShift = source.pageShift();
+		this.free = new ArrayBlockingQueue<>(BUFFERS);
+		this.full = new ArrayBlockingQueue<>(BUFFERS);
+		for (int i = 0; i < BUFFERS; i++)
+			free.add(new Batch());
+
+		this.decoder = new Thread(this::decode, "trace-decoder");
+		this.decoder.setDaemon(true);
+		this.decoder.start();
+	}
+
+	/**
+	 * The decoder thread's loop; fills free buffers from the source reader and
+	 * queues them for the simulator thread until the trace ends.
+	 */
+	private void decode() {
+		try {
+			boolean last = false;
+
+			while (!last) {
+				Batch b = free.take(); // Blocks while the simulator is BUFFERS batches behind
+				int n = 0;
+
+				try {
+					while (n < BATCH_SIZE && source.next())
+						b.accesses[n++] = (source.page() << 1) | (source.isStore() ? 1 : 0);
+					last = n < BATCH_SIZE;
+					b.error = null;
+				} catch (IOException e) {
+					last = true;
+					b.error = e;
+				}
+
+				b.count = n;
+				b.last = last;
+				full.put(b);
+			}
+		} catch (InterruptedException e) {
+			// close() was called before the trace was finished
+		}
+	}
+
+	@Override
+	public boolean next() throws IOException {
+
+		while (batch == null || next == batch.count) {
+
+			if (batch != null) {
+				if (batch.error != null)
+					throw batch.error;
+				if (batch.last)
+					return false;
+				free.add(batch); // Hand the buffer back to the decoder thread
+			}
+
+			try {
+				batch = full.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for the trace decoder", e);
+			}
+			next = 0;
+		}
+
+		int access = batch.accesses[next++];
+		page = access >>> 1;
+		store = (access & 1) != 0;
+		lineNum++;
+		return true;
+	}
+
+	@Override
+	public long size() {
+		return source.size();
+	}
+
+	@Override
+	public long vpn() {
+		return radix == null ? page : radix.vpnOf(page);
+	}
+
+	@Override
+	public void close() throws IOException {
+		decoder.interrupt();
+		try {
+			decoder.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		source.close();
+	}
+}
@@ -0,0 +1,102 @@
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * The memory accesses, page faults and writes to disk of every process of a
+ * simulation. The counters are long arrays indexed by address space, the
+ * dense process numbers of RadixPageTable, so counting costs an array store
+ * and no map lookup however many processes a trace has. The arrays grow by
+ * doubling when a new process shows up.
+ *
+ * @see RadixPageTable.java
+ * @author Steven Montalbano
+ */
+public class ProcessStats {
+
+	private long[] accesses, faults, writes; // The statistics of each process
+	private int processCount; 				// The number of processes seen
+
+	public ProcessStats() {
+		this.accesses = new long[16];
+		this.faults = new long[16];
+		this.writes = new long[16];
+	}
+
+	/**
+	 * Counts a memory access that hit
+	 *
+	 * @param process the address space of the process
+	 */
+	public void hit(int process) {
+		grow(process);
+		accesses[process]++;
+	}
+
+	/**
+	 * Counts a memory access that faulted
+	 *
+	 * @param process the address space of the process
+	 */
+	public void fault(int process) {
+		grow(process);
+		accesses[process]++;
+		faults[process]++;
+	}
+
+	/**
+	 * Counts a write of a dirty page back to disk
+	 *
+	 * @param process the address space of the process the page belongs to
+	 */
+	public void write(int process) {
+		grow(process);
+		writes[process]++;
+	}
+
+	private void grow(int process) {
+		if (process < processCount)
+			return;
+		if (process >= accesses.length) {
+			int length = Math.max(process + 1, accesses.length << 1);
+			accesses = Arrays.copyOf(accesses, length);
+			faults = Arrays.copyOf(faults, length);
+			writes = Arrays.copyOf(writes, length);
+		}
+		processCount = process + 1;
+	}
+
+	/**
+	 * @return the number of processes, the largest address space seen plus one
+	 */
+	public int getProcessCount() {
+		return processCount;
+	}
+
+	public long getAccesses(int process) {
+		return accesses[process];
+	}
+
+	public long getFaults(int process) {
+		return faults[process];
+	}
+
+	public long getWrites(int process) {
+		return writes[process];
+	}
+
+	/**
+	 * Prints a CSV table of the statistics of every process, in order of first
+	 * access
+	 *
+	 * @param radix the page table that numbered the processes, for their PIDs, or
+	 *              null if the trace had no PIDs
+	 * @param out   the stream to print to
+	 */
+	public void printCSV(RadixPageTable radix, PrintStream out) {
+		StringBuilder csv = new StringBuilder("pid,accesses,faults,writes\n");
+		for (int p = 0; p < processCount; p++)
+			csv.append(radix == null ? 0 : radix.pidOf(p)).append(',').append(accesses[p]).append(',')
+					.append(faults[p]).append(',').append(writes[p]).append('\n');
+		out.print(csv);
+	}
+}
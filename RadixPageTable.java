@@ -0,0 +1,284 @@
+import java.util.Arrays;
+
+/**
+ * A sparse 6 level radix page table over full 64 bit virtual addresses. A
+ * 52 bit virtual page number is split into a 7 bit index for the root and
+ * five 9 bit indices below it, one per level, and the nodes of a level are
+ * only allocated the first time a page under them is touched, so the table
+ * takes memory in proportion to the pages a trace touches rather than to the
+ * address space. Like x86-64's, every node below the root has 512 entries.
+ *
+ * Every process of a trace has its own address space: a root of its own,
+ * found by its PID in a plain array, under which its nodes are allocated. A
+ * trace without PIDs is a single process with PID 0. An address space costs
+ * at least the 6 nodes on the path to its first page, 10.5 KB, so a trace can
+ * interleave thousands of processes.
+ *
+ * The leaves map each virtual page number to a dense page id, handed out in
+ * order of first touch and shared by every address space. The PRAs index
+ * their Page Table and all of their per page state by the page id, so a trace
+ * can touch pages anywhere in the address space as long as it touches at most
+ * capacity distinct pages. Second, chunked arrays map each page id back to
+ * its virtual page number and address space.
+ *
+ * Like the paging structure caches of an MMU, the walk remembers the nodes it
+ * visited on each level below the root, in a small direct mapped cache per
+ * level whose entries are tagged with the address space, and a walk starts at
+ * the deepest remembered node that covers the page. A switch to another
+ * address space does not flush the cache, so processes that take turns keep
+ * their nodes. The walk depth, the number of levels visited, is 1 when the
+ * leaf of the page is remembered and 6 for a walk from the root.
+ *
+ * Nodes are int arrays: an inner node holds the numbers of its children and a
+ * leaf holds page id + 1, with 0 for an entry that is not there yet. Nothing
+ * is allocated on a lookup unless it touches a new part of the table.
+ *
+ * @author Steven Montalbano
+ */
+public class RadixPageTable {
+
+	public static final int VPN_BITS = 52; 		// The bits of a virtual page number of a 4 KB page
+	public static final int LEVELS = 6;
+	public static final int LEVEL_BITS = 9; 	// The bits of the virtual page number each level below the root indexes by
+	public static final int NODE_SIZE = 1 << LEVEL_BITS;
+	private static final int LEVEL_MASK = NODE_SIZE - 1;
+	private static final int ROOT_SIZE = 1 << (VPN_BITS - (LEVELS - 1) * LEVEL_BITS); // The root indexes by the rest, 7 bits
+	private static final int CACHE_BITS = 4; 	// The walk cache remembers 16 nodes per level
+	private static final int CACHE_MASK = (1 << CACHE_BITS) - 1;
+	public static final int MAX_PID = (1 << 22) - 1; // The largest PID, Linux's largest pid_max
+	private static final int CHUNK_BITS = 12; 	// The page ids per chunk of the reverse maps
+	private static final int NONE = 0; 			// The node number of a node that is not allocated
+
+	private final int capacity; 	// The number of page ids there are
+	private int[][] nodes; 			// Every node, by node number, from 1
+	private int nodeCount; 			// The number of node numbers used, NONE included
+	private long nodeInts; 			// The entries of every node
+	private final long[][] vpns; 	// The virtual page number of each page id, in chunks allocated as needed
+	private final int[][] spaces; 	// The address space of each page id, in chunks allocated as needed
+	private int pageCount; 			// The number of page ids handed out
+	private int[] spaceOfPid; 		// The address space of each PID, or -1
+	private int[] pidOf; 			// The PID of each address space
+	private int[] roots; 			// The root node of each address space
+	private int spaceCount; 		// The number of address spaces
+	private final long[] cachedTag; // The virtual page number bits above each remembered node
+	private final int[] cachedSpace; // The address space of each remembered node
+	private final int[] cachedNode; // The remembered nodes, or NONE, by level << CACHE_BITS | set; level 0 = the leaves
+	private long walks, levels; 	// The number of lookups and of levels they visited
+
+	/**
+	 * @param capacity the number of distinct pages the table can hold
+	 */
+	public RadixPageTable(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The page table must hold at least one page");
+		this.capacity = capacity;
+		this.nodes = new int[8][];
+		this.nodeCount = 1;
+		this.vpns = new long[((capacity - 1) >>> CHUNK_BITS) + 1][];
+		this.spaces = new int[vpns.length][];
+		this.spaceOfPid = new int[0];
+		this.pidOf = new int[1];
+		this.roots = new int[1];
+		this.cachedTag = new long[(LEVELS - 1) << CACHE_BITS];
+		this.cachedSpace = new int[cachedTag.length];
+		this.cachedNode = new int[cachedTag.length];
+	}
+
+	/**
+	 * Finds the address space of a process, creating it on the first access of
+	 * the process. Address spaces are numbered from 0 in order of creation.
+	 *
+	 * @param pid the PID, from 0 to MAX_PID
+	 * @return the address space
+	 */
+	public int space(int pid) {
+		if (pid >= spaceOfPid.length) {
+			int old = spaceOfPid.length;
+			spaceOfPid = Arrays.copyOf(spaceOfPid, Math.min(MAX_PID + 1, Math.max(pid + 1, old << 1)));
+			Arrays.fill(spaceOfPid, old, spaceOfPid.length, -1);
+		}
+
+		int space = spaceOfPid[pid];
+		if (space < 0) {
+			space = spaceOfPid[pid] = spaceCount++;
+			if (space == roots.length) {
+				roots = Arrays.copyOf(roots, space << 1);
+				pidOf = Arrays.copyOf(pidOf, space << 1);
+			}
+			pidOf[space] = pid;
+			roots[space] = allocate(ROOT_SIZE);
+		}
+		return space;
+	}
+
+	/**
+	 * Walks the table to the page id of a virtual page, giving the page the
+	 * next page id on its first touch
+	 *
+	 * @param space the address space, from space(pid)
+	 * @param vpn   the virtual page number, the address without its offset bits
+	 * @return the page id, or -1 if the page is new and every page id is taken
+	 * @throws IllegalArgumentException if the virtual page number is wider than
+	 *                                  the levels index
+	 */
+	public int lookup(int space, long vpn) {
+		if (vpn >>> VPN_BITS != 0)
+			throw new IllegalArgumentException(
+					String.format("Virtual page number 0x%x is wider than %d bits", vpn, VPN_BITS));
+		walks++;
+
+		int level = 0; 	// The level to start from, 0 = the leaf, and its node
+		int node = NONE;
+		for (; level < LEVELS - 1; level++) {
+			long tag = vpn >>> ((level + 1) * LEVEL_BITS);
+			int entry = cacheEntry(level, space, tag);
+			if (cachedNode[entry] != NONE && cachedTag[entry] == tag && cachedSpace[entry] == space) {
+				node = cachedNode[entry];
+				break;
+			}
+		}
+
+		if (level == LEVELS - 1) 	// Nothing remembered, from the root
+			node = roots[space];
+
+		for (; level > 0; level--) { 	// Down the inner nodes to the leaf
+			levels++;
+			node = child(node, (int) (vpn >>> (level * LEVEL_BITS)) & LEVEL_MASK);
+			remember(level - 1, space, vpn, node);
+		}
+
+		levels++;
+		int[] leaf = nodes[node];
+		int slot = (int) vpn & LEVEL_MASK;
+		int id = leaf[slot] - 1;
+		if (id < 0) { 	// First touch
+			if (pageCount == capacity)
+				return -1;
+			id = pageCount++;
+			leaf[slot] = id + 1;
+			int chunk = id >>> CHUNK_BITS;
+			if (vpns[chunk] == null) {
+				vpns[chunk] = new long[1 << CHUNK_BITS];
+				spaces[chunk] = new int[1 << CHUNK_BITS];
+			}
+			vpns[chunk][id & ((1 << CHUNK_BITS) - 1)] = vpn;
+			spaces[chunk][id & ((1 << CHUNK_BITS) - 1)] = space;
+		}
+		return id;
+	}
+
+	/**
+	 * @param id a page id handed out by lookup
+	 * @return the virtual page number of the page
+	 */
+	public long vpnOf(int id) {
+		return vpns[id >>> CHUNK_BITS][id & ((1 << CHUNK_BITS) - 1)];
+	}
+
+	/**
+	 * @param id a page id handed out by lookup
+	 * @return the address space of the page
+	 */
+	public int spaceOf(int id) {
+		return spaces[id >>> CHUNK_BITS][id & ((1 << CHUNK_BITS) - 1)];
+	}
+
+	/**
+	 * @param space an address space
+	 * @return the PID of its process
+	 */
+	public int pidOf(int space) {
+		return pidOf[space];
+	}
+
+	/**
+	 * @return the number of address spaces, one per process
+	 */
+	public int getSpaceCount() {
+		return spaceCount;
+	}
+
+	/**
+	 * @return the child of an inner node in a slot, allocated if it is not there
+	 */
+	private int child(int node, int slot) {
+		int[] inner = nodes[node];
+		int child = inner[slot];
+		if (child == NONE)
+			child = inner[slot] = allocate(NODE_SIZE);
+		return child;
+	}
+
+	private int cacheEntry(int level, int space, long tag) {
+		return level << CACHE_BITS | (((int) tag ^ space) & CACHE_MASK);
+	}
+
+	private void remember(int level, int space, long vpn, int node) {
+		long tag = vpn >>> ((level + 1) * LEVEL_BITS);
+		int entry = cacheEntry(level, space, tag);
+		cachedTag[entry] = tag;
+		cachedSpace[entry] = space;
+		cachedNode[entry] = node;
+	}
+
+	private int allocate(int size) {
+		if (nodeCount == nodes.length)
+			nodes = Arrays.copyOf(nodes, nodeCount << 1);
+		nodes[nodeCount] = new int[size];
+		nodeInts += size;
+		return nodeCount++;
+	}
+
+	/**
+	 * @return the number of distinct pages the table can hold
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of distinct pages touched
+	 */
+	public int getPageCount() {
+		return pageCount;
+	}
+
+	/**
+	 * @return the number of nodes allocated, the roots included
+	 */
+	public int getNodeCount() {
+		return nodeCount - 1;
+	}
+
+	/**
+	 * @return the bytes taken by the nodes of the table and the reverse maps
+	 */
+	public long getBytes() {
+		long bytes = nodeInts * Integer.BYTES;
+		for (long[] chunk : vpns)
+			if (chunk != null)
+				bytes += (long) chunk.length * (Long.BYTES + Integer.BYTES);
+		return bytes + (long) spaceOfPid.length * Integer.BYTES;
+	}
+
+	/**
+	 * @return the number of lookups
+	 */
+	public long getWalks() {
+		return walks;
+	}
+
+	/**
+	 * @return the average number of levels a lookup visited
+	 */
+	public double getAverageDepth() {
+		return walks == 0 ? 0 : (double) levels / walks;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%sDistinct pages: %d\nPage table nodes: %d (%d KB)\nAverage page walk depth: %.2f\n",
+				spaceCount > 1 ? "Processes: " + spaceCount + "\n" : "", pageCount, getNodeCount(), getBytes() >>> 10,
+				getAverageDepth());
+	}
+}
@@ -0,0 +1,192 @@
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+/**
+ * Timing metrics of one simulation: the wall clock time of each phase of the
+ * run, and optionally a histogram of how long the algorithm took to select
+ * each victim. Every PRA carries its own RunMetrics, and the run report
+ * written with --report combines them with the PRA's counters.
+ *
+ * The phases are parse (decoding the trace into memory), preprocess (work done
+ * over the whole trace before simulating, like OPT's next-use pass) and
+ * simulate. Algorithms that stream the trace decode it while they simulate, so
+ * their decoding is counted in simulate.
+ *
+ * Victim selection latencies are only measured once enabled, so runs without a
+ * report do not pay for the System.nanoTime() calls. The histogram has one
+ * bucket per power of two nanoseconds.
+ *
+ * @author Steven Montalbano
+ */
+public class RunMetrics {
+
+	public static final int PARSE = 0, PREPROCESS = 1, SIMULATE = 2; // The phases of a run
+	private static final String[] PHASE_NAMES = { "parse", "preprocess", "simulate" };
+	private static final int NONE = -1; // No phase is running
+
+	private final long[] phaseNanos = new long[PHASE_NAMES.length]; // The time spent in each phase
+	private final long[] victimNanos = new long[64]; 	// victimNanos[i] = the victim selections that took
+														// [2^(i-1), 2^i) ns; bucket 0 holds 0 ns
+	private boolean timeVictims; 	// Are victim selection latencies being measured?
+	private int phase = NONE; 		// The phase running now
+	private long phaseStart; 		// When the phase running now started
+
+	/**
+	 * Ends the phase running now, if any, and starts timing another
+	 *
+	 * @param next PARSE, PREPROCESS or SIMULATE
+	 */
+	public void phase(int next) {
+		long now = System.nanoTime();
+		if (phase != NONE)
+			phaseNanos[phase] += now - phaseStart;
+		phase = next;
+		phaseStart = now;
+	}
+
+	/**
+	 * Ends the phase running now, at the end of a simulation
+	 */
+	public void finish() {
+		phase(NONE);
+	}
+
+	/**
+	 * @param phase PARSE, PREPROCESS or SIMULATE
+	 * @return the time spent in the phase in nanoseconds
+	 */
+	public long getPhaseNanos(int phase) {
+		return phaseNanos[phase];
+	}
+
+	/**
+	 * @return the time spent in every phase in nanoseconds
+	 */
+	public long getTotalNanos() {
+		long total = 0;
+		for (long nanos : phaseNanos)
+			total += nanos;
+		return total;
+	}
+
+	/**
+	 * Sets whether each victim selection is timed
+	 *
+	 * @param timed true to build the victim selection latency histogram
+	 */
+	public void setTimeVictims(boolean timed) {
+		timeVictims = timed;
+	}
+
+	/**
+	 * Called right before an algorithm starts selecting a victim
+	 *
+	 * @return the start time to hand to victimChosen(), or 0 when not timing
+	 */
+	public long victimStart() {
+		return timeVictims ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Called right after an algorithm has selected a victim
+	 *
+	 * @param start the value victimStart() returned
+	 */
+	public void victimChosen(long start) {
+		if (timeVictims)
+			victimNanos[64 - Long.numberOfLeadingZeros(System.nanoTime() - start)]++;
+	}
+
+	/**
+	 * @return the peak size of the JVM's heap so far in bytes, summed over the
+	 *         heap memory pools
+	 */
+	public static long peakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+			if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null)
+				peak += pool.getPeakUsage().getUsed();
+		return peak;
+	}
+
+	/**
+	 * Prints the run report of a finished simulation as a JSON object: its
+	 * counters, phase timings, throughput, peak heap and, if victim selections
+	 * were timed, their latency histogram.
+	 *
+	 * @param alg   the finished simulation
+	 * @param trace the name of the trace or workload it ran on
+	 * @param out   the stream to print to
+	 */
+	public void printJSON(PRA alg, String trace, PrintStream out) {
+		double seconds = getTotalNanos() / 1e9;
+
+		out.println("{");
+		out.printf("  \"trace\": \"%s\",\n", trace.replace("\\", "\\\\").replace("\"", "\\\""));
+		out.printf("  \"algorithm\": \"%s\",\n", alg);
+		out.printf("  \"frames\": %d,\n", alg.getRAMframes());
+		out.printf("  \"accesses\": %d,\n", alg.getMemAccess());
+		out.printf("  \"faults\": %d,\n", alg.getPageFaults());
+		out.printf("  \"writes\": %d,\n", alg.getDiskWrites());
+		if (alg.getPageShift() >= 0)
+			out.printf("  \"pageSize\": %d,\n", 1L << alg.getPageShift());
+		out.print("  \"phasesMs\": {");
+		for (int p = 0; p < PHASE_NAMES.length; p++)
+			out.printf("\"%s\": %.3f, ", PHASE_NAMES[p], phaseNanos[p] / 1e6);
+		out.printf("\"total\": %.3f},\n", getTotalNanos() / 1e6);
+		out.printf("  \"accessesPerSec\": %.0f,\n", seconds > 0 ? alg.getMemAccess() / seconds : 0);
+		out.printf("  \"faultsPerSec\": %.0f,\n", seconds > 0 ? alg.getPageFaults() / seconds : 0);
+		out.printf("  \"peakHeapBytes\": %d", peakHeap());
+
+		RadixPageTable radix = alg.getRadixTable();
+		if (radix != null)
+			out.printf(",\n  \"pageTable\": {\"pages\": %d, \"nodes\": %d, \"bytes\": %d, \"averageWalkDepth\": %.3f}",
+					radix.getPageCount(), radix.getNodeCount(), radix.getBytes(), radix.getAverageDepth());
+
+		ProcessStats processes = alg.getProcessStats();
+		if (processes != null) {
+			out.print(",\n  \"processes\": [");
+			for (int p = 0; p < processes.getProcessCount(); p++)
+				out.printf("%s{\"pid\": %d, \"accesses\": %d, \"faults\": %d, \"writes\": %d}", p == 0 ? "" : ", ",
+						radix == null ? 0 : radix.pidOf(p), processes.getAccesses(p), processes.getFaults(p),
+						processes.getWrites(p));
+			out.print("]");
+		}
+
+		if (timeVictims) {
+			long count = 0;
+			for (long c : victimNanos)
+				count += c;
+
+			out.printf(",\n  \"victimSelectionNs\": {\"count\": %d, \"p50\": %d, \"p99\": %d, \"max\": %d, \"buckets\": [",
+					count, percentile(count, 0.5), percentile(count, 0.99), percentile(count, 1));
+			String sep = "";
+			for (int b = 0; b < victimNanos.length; b++) {
+				if (victimNanos[b] != 0) {
+					out.printf("%s{\"lessThan\": %d, \"count\": %d}", sep, 1L << b, victimNanos[b]);
+					sep = ", ";
+				}
+			}
+			out.print("]}");
+		}
+		out.println("\n}");
+	}
+
+	/**
+	 * @param count    the number of victim selections
+	 * @param fraction the percentile as a fraction
+	 * @return the exclusive upper bound in nanoseconds of the histogram bucket
+	 *         holding the percentile, or 0 when nothing was timed
+	 */
+	private long percentile(long count, double fraction) {
+		long rank = (long) Math.ceil(count * fraction), seen = 0;
+		for (int b = 0; b < victimNanos.length; b++) {
+			seen += victimNanos[b];
+			if (seen >= rank && seen > 0)
+				return 1L << b;
+		}
+		return 0;
+	}
+}
@@ -1,6 +1,4 @@
-import java.io.BufferedReader;
-import java.io.FileReader;
-import java.util.LinkedList;
+import java.io.IOException;
 
 /**
  * A class to represent the Clock implementation of the
@@ -12,114 +10,114 @@ import java.util.LinkedList;
  * 
  * NOTE: The Second Chance algor
  * 
+ * RAM is the ring of frames the clock hand sweeps over and
+ * the hand is an int frame index. Residency is checked in
+ * O(1) through the page table's valid bit and frame number,
+ * and the reference bits are kept per frame in a packed
+ * bitset, so the sweep clears and skips referenced frames
+ * 64 at a time.
+ * 
  * @author Steven Montalbano
  */
 public class SecondChance extends PRA {
 
-	public SecondChance() {
-		super();
+	private final long[] refBits; 	// The reference bit of each frame of RAM, packed 64 frames to a word
+	private final long lastWordMask; // The bits of the last word of refBits that belong to real frames
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public SecondChance(int frames, int pages) {
+		super(frames, pages);
 		this.name = "SECOND";
+		this.refBits = new long[(RAMframes + 63) >>> 6];
+		this.lastWordMask = (RAMframes & 63) == 0 ? -1L : (1L << (RAMframes & 63)) - 1;
 	}
 
 	@Override
-	public void sim(String traceFile) {
+	public void sim(TraceReader trace) throws IOException {
 
-		String line; 		// Each line read in from the trace file
-		char mode; 			// The mode character on each memory instruction; l == load, s == store
-		long hex; 			// The long representation of the hex memory address
 		int index; 			// The index into the Page Table for the cur memory instruction
 		int clockPos = 0;	// The stored clock hand position
-		PTE tmp; 			// A tmp PageTableEntry reference used for shuffling PTEs across RAM and the Page Table
-		PTE victim = null;	// The victim to be evicted on Page Faults
-		LinkedList<PTE> RAMlist = new LinkedList<PTE>();	// RAM will be represented using a LinkedList to allow the 
-															// incoming page to stay in order maintaining the clock hand logic
-		try {
-
-			BufferedReader buf = new BufferedReader(new FileReader(traceFile));
-
-			while (buf.ready()) {
-
-				line = buf.readLine(); 			// Get the next line of the trace file
-				mode = line.charAt(0); 			// Parse the mode char from the first position of the String line
-				hex = Long.decode(line.substring(2)); // Parse the hex memory address of the page into a long
-				index = (int) (hex >> 12); 	// The 12 left most bits are an offset that does not apply to this simulation.
-
-				debugPrint(String.format("Index read in == %d\n", index));
-
-				if (!pageTable.containsKey(index)) { 	// New PTE seen, not in Page Table or RAM (since all things in RAM
-														// will be in the PT)
-					tmp = new PTE(index); 				// Create a new PTE
-					pageTable.put(index, tmp); 
-				} else 								// This memory addr has been seen before, A PTE should exist
-					tmp = pageTable.get(index); 	// Get this PTE from its index in the Page Table
-
-				if(mode == 's')
-					tmp.dirty = true;
-								
-				if(RAMlist.contains(tmp)) {		// Page hit
-
-					tmp.ref = true; 		  	// Page accessed after being loaded into RAM, ref becomes true
-					debugPrint(String.format("Page hit on index %d\n", index));
-
-				} else { 	// Page Fault, must add the tmp PTE into RAM. Check if eviction is needed before loading into RAM
-
-					pageFaults++;
-
-					debugPrint(String.format("Page fault on index %d\n", index));
-
-					if(RAMlist.size() < RAMframes) {
-						RAMlist.add(tmp);		// Load the PTE into RAM
-						tmp.valid = true; 		// Page is now in RAM, set valid bit to true
-						debugPrint("PF:\tNo eviction needed\n", 3);
-
-					} else { 	// RAM is full, must evict a PTE and write it back to disk if dirty
-
-						debugPrint("RAM is full, must evict a PTE... \n");
-									
-						// Start iterating over RAM from the previously stored clock hand position
-		  				int i = 0, j = 0;
-						for(i = clockPos, j = 0; j < RAMlist.size()+1; j++, i = (i+1) % RAMframes) {
-							
-							PTE p = RAMlist.get(i);
-
-							if(p.ref)			// If referenced, set to false to give this PTE a second chance
-								p.ref = false;
-							else {
-								victim = p;		// Victim found, break out of the loop
-								break;
-							}	
-						}
-	
-						clockPos = (i+1) % RAMframes;	// Update the stored clockPos to be the next PTE after victim
-						
-						// At this point, victim will point towards the PTE that will be evicted
-						// from RAM and written back to disk
-
-						if (victim.dirty) { // If the PTE's dirty bit is set, its value must be updated in the Page Table before eviction
-							victim.dirty = false;
-							diskWrites++;
-						}
-
-						debugPrint(String.format("PF:\tEvicting page # %x \n", victim.baseAddr), 4);
-
-						victim.valid = false; 		// This PTE is no longer mapped to physical memory in RAM
-						RAMlist.set(i, tmp);		// Replace the victim PTE with the incoming tmp PTE, maintaining order
-						tmp.valid = true; 						
-					}
-				}
 
-				memAccess++; // Increment total memory accesses on every loop iteration
-			} // End while
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		// RAM is used as the ring of frames the clock hand sweeps over. Pages are loaded into the
+		// frames in order, and a victim's frame is reused by the incoming page maintaining the clock hand logic
+		while (trace.next()) { 	// Decode the next memory access of the trace file
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			if(trace.isStore())
+				markDirty(index);
+
+			if(isResident(index)) {		// Page hit
+
+				hit(index);
+				int frame = frameOf(index);
+				refBits[frame >>> 6] |= 1L << frame; 	// Page accessed after being loaded into RAM, ref becomes true
 
-			buf.close();
+			} else { 	// Page Fault, must load the page into RAM. Check if eviction is needed before loading into RAM
 
-			debugPrint("----------------------------\n", 1); // TODO delete
-			
-//			debugPrint(String.format("PageTable size == %d\n", pageTable.size()), 1);
+				fault(index);
 
-		} catch (Exception e) {
-			System.out.println("Error running Second Chance!\n");
-			e.printStackTrace();
+				if(RAMhasRoom()) {
+					load(index);		// Load the page into the next empty frame of RAM
+
+				} else { 	// RAM is full, must evict a page and write it back to disk if dirty
+
+					long start = metrics.victimStart();
+					int i = sweep(clockPos); // Start sweeping over RAM from the previously stored clock hand position
+					metrics.victimChosen(start);
+
+					clockPos = (i+1) % RAMframes;	// Update the stored clockPos to be the next frame after victim
+
+					// At this point, i will be the frame whose page will be evicted
+					// from RAM and written back to disk if dirty
+
+					evict(i);
+
+					load(index, i);		// Replace the victim with the incoming page, maintaining order
+				}
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		metrics.finish();
+
+	} // End sim
+
+	/**
+	 * Helper function that advances the clock hand from a frame of RAM to the
+	 * first frame whose reference bit is clear, clearing the reference bit of
+	 * every frame passed over along the way to give it a second chance. Works a
+	 * whole word of the bitset at a time. Loaded pages start out unreferenced, so
+	 * the frame found is always the victim's.
+	 *
+	 * @param start the frame the clock hand is at
+	 * @return the frame of the victim
+	 */
+	private int sweep(int start) {
+
+		int last = refBits.length - 1;
+		int i = start;
+
+		while (true) {
+			int w = i >>> 6;
+			long word = refBits[w];
+			long ahead = (-1L << i) & (w == last ? lastWordMask : -1L); // The frames of this word from i on
+			long clear = ~word & ahead;
+
+			if (clear != 0) { // Found an unreferenced frame in this word
+				int victim = (w << 6) + Long.numberOfTrailingZeros(clear);
+				refBits[w] = word & ~(ahead & ((1L << victim) - 1)); // Clear the frames passed over
+				return victim;
+			}
+
+			refBits[w] = word & ~ahead; // Every frame from i on was referenced; clear them and move on
+			i = w == last ? 0 : (w + 1) << 6;
 		}
-	} // End sim	
+	}
 } // End SecondChance class
@@ -0,0 +1,98 @@
+/**
+ * Receives the events of a simulation as they happen: every page hit, page
+ * fault, eviction and write back of a dirty page to disk. Every argument is a
+ * primitive, so firing an event allocates nothing. A page is identified by its
+ * address space and virtual page number together, since every process of a
+ * trace has an address space of its own; the address spaces are numbered from
+ * 0 in order of each process's first access, and a single process trace only
+ * has space 0. The order of a page gives its size, 2^order base pages of the
+ * trace, and its page number counts pages of that size: 0 and the virtual
+ * page number for a base page, and for a huge page its virtual page number
+ * shifted right by the order.
+ *
+ * A PRA with no listener attached skips the events behind a single null
+ * check, so diagnostics cost nothing on production runs. Every callback has an
+ * empty default, so a listener only implements the events it cares about.
+ *
+ * @see EvictionLog.java, EventCounters.java, TLB.java
+ * @author Steven Montalbano
+ */
+public interface SimulationListener {
+
+	/**
+	 * @param line  the line number of the memory access
+	 * @param space the address space of the page
+	 * @param page  the page number accessed
+	 * @param order log2 of the base pages the page spans, 0 for a base page
+	 * @param frame the frame the page is loaded into, or PRA.EMPTY for a huge page
+	 */
+	default void hit(long line, int space, long page, int order, int frame) {
+	}
+
+	/**
+	 * @param line  the line number of the memory access
+	 * @param space the address space of the page
+	 * @param page  the page number that was not resident
+	 * @param order log2 of the base pages the page spans, 0 for a base page
+	 */
+	default void fault(long line, int space, long page, int order) {
+	}
+
+	/**
+	 * @param line  the line number of the memory access that caused the eviction
+	 * @param space the address space of the victim
+	 * @param page  the page number of the victim
+	 * @param order log2 of the base pages the victim spans, 0 for a base page
+	 * @param frame the frame the victim is evicted from, or PRA.EMPTY for a huge page
+	 * @param dirty true if the victim is written back to disk
+	 */
+	default void evict(long line, int space, long page, int order, int frame, boolean dirty) {
+	}
+
+	/**
+	 * @param line  the line number of the memory access that caused the eviction
+	 * @param space the address space of the dirty victim
+	 * @param page  the page number of the dirty victim written back to disk
+	 * @param order log2 of the base pages the victim spans, 0 for a base page
+	 */
+	default void writeBack(long line, int space, long page, int order) {
+	}
+
+	/**
+	 * @param first  a listener, or null
+	 * @param second another listener, or null
+	 * @return a listener that hands every event to both, in order, or the other
+	 *         one if either is null
+	 */
+	static SimulationListener both(SimulationListener first, SimulationListener second) {
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+		return new SimulationListener() {
+			@Override
+			public void hit(long line, int space, long page, int order, int frame) {
+				first.hit(line, space, page, order, frame);
+				second.hit(line, space, page, order, frame);
+			}
+
+			@Override
+			public void fault(long line, int space, long page, int order) {
+				first.fault(line, space, page, order);
+				second.fault(line, space, page, order);
+			}
+
+			@Override
+			public void evict(long line, int space, long page, int order, int frame, boolean dirty) {
+				first.evict(line, space, page, order, frame, dirty);
+				second.evict(line, space, page, order, frame, dirty);
+			}
+
+			@Override
+			public void writeBack(long line, int space, long page, int order) {
+				first.writeBack(line, space, page, order);
+				second.writeBack(line, space, page, order);
+			}
+		};
+	}
+}
@@ -0,0 +1,153 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs a grid of simulations, every algorithm at every number of frames on
+ * every trace, in parallel in one JVM. Each trace is decoded once into a
+ * shared read-only DecodedTrace, and each simulation replays it through its
+ * own reader on a fork-join pool. The results are gathered into a single table
+ * printed as CSV or JSON, in grid order regardless of which simulation
+ * finished first.
+ *
+ * @author Steven Montalbano
+ */
+public class Sweep {
+
+	/**
+	 * The statistics of one simulation of the sweep
+	 */
+	public static class Result {
+		public final String trace, algorithm;
+		public final int frames;
+		public final long memAccess, pageFaults, diskWrites;
+
+		Result(String trace, String algorithm, int frames, PRA alg) {
+			this.trace = trace;
+			this.algorithm = algorithm;
+			this.frames = frames;
+			this.memAccess = alg.getMemAccess();
+			this.pageFaults = alg.getPageFaults();
+			this.diskWrites = alg.getDiskWrites();
+		}
+	}
+
+	private final List<String> algorithms; 	// The algorithm names to run
+	private final int[] frames; 			// The numbers of frames to run each algorithm with
+	private final List<String> traces; 		// The trace files to run on
+	private final int pages; 				// The size of the Page Table
+	private int pageShift = -1; 			// log2 of the page size, or -1 for each trace file's own
+
+	/**
+	 * @param algorithms the algorithm names to run, as accepted by -a
+	 * @param frames     the numbers of frames to run each algorithm with
+	 * @param traces     the trace files to run on
+	 * @param pages      the size of the Page Table
+	 */
+	public Sweep(List<String> algorithms, int[] frames, List<String> traces, int pages) {
+		this.algorithms = algorithms;
+		this.frames = frames;
+		this.traces = traces;
+		this.pages = pages;
+	}
+
+	/**
+	 * Sets the page size the traces are read at
+	 *
+	 * @param shift log2 of the page size, or -1 for each trace file's own
+	 */
+	public void setPageShift(int shift) {
+		this.pageShift = shift;
+	}
+
+	/**
+	 * Decodes every trace and runs every simulation of the grid
+	 *
+	 * @param threads the parallelism of the fork-join pool
+	 * @param mapped  true to memory map the trace files while decoding them
+	 * @return the results in grid order: trace, then algorithm, then frames
+	 * @throws IOException if a trace can not be read or a simulation fails
+	 */
+	public List<Result> run(int threads, boolean mapped) throws IOException {
+
+		ForkJoinPool pool = new ForkJoinPool(threads);
+
+		try {
+			List<Callable<DecodedTrace>> decodes = new ArrayList<>();
+			for (String traceFile : traces) {
+				decodes.add(() -> {
+					try (TraceReader trace = TraceReader.open(traceFile, mapped)) {
+						trace.setPageLimit(pages);
+						if (pageShift >= 0)
+							trace.setPageShift(pageShift);
+						return DecodedTrace.read(trace);
+					}
+				});
+			}
+			List<Future<DecodedTrace>> decoded = pool.invokeAll(decodes); // Decode each trace once, in parallel
+
+			List<Callable<Result>> sims = new ArrayList<>();
+			for (int t = 0; t < traces.size(); t++) {
+				DecodedTrace trace = decoded.get(t).get();
+				String traceFile = traces.get(t);
+
+				for (String algName : algorithms) {
+					for (int n : frames) {
+						sims.add(() -> {
+							PRA alg = VMSim.createAlgorithm(algName, n, pages);
+							alg.sim(trace.reader());
+							return new Result(traceFile, alg.toString(), n, alg);
+						});
+					}
+				}
+			}
+
+			List<Result> results = new ArrayList<>();
+			for (Future<Result> result : pool.invokeAll(sims))
+				results.add(result.get());
+			return results;
+
+		} catch (ExecutionException e) {
+			throw new IOException("Sweep simulation failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Sweep interrupted", e);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Prints the results as a CSV table with a header row
+	 */
+	public static void printCSV(List<Result> results, PrintStream out) {
+		out.println("trace,algorithm,frames,accesses,faults,writes");
+		for (Result r : results)
+			out.printf("%s,%s,%d,%d,%d,%d\n", r.trace, r.algorithm, r.frames, r.memAccess, r.pageFaults,
+					r.diskWrites);
+	}
+
+	/**
+	 * Prints the results as a JSON array of objects
+	 */
+	public static void printJSON(List<Result> results, PrintStream out) {
+		out.println("[");
+		for (int i = 0; i < results.size(); i++) {
+			Result r = results.get(i);
+			out.printf(
+					"  {\"trace\": \"%s\", \"algorithm\": \"%s\", \"frames\": %d, \"accesses\": %d, \"faults\": %d, \"writes\": %d}%s\n",
+					jsonEscape(r.trace), r.algorithm, r.frames, r.memAccess, r.pageFaults, r.diskWrites,
+					i < results.size() - 1 ? "," : "");
+		}
+		out.println("]");
+	}
+
+	private static String jsonEscape(String s) {
+		return s.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
@@ -0,0 +1,125 @@
+import java.util.Arrays;
+
+/**
+ * A SimulationListener that models a set associative Translation Lookaside
+ * Buffer in front of the Page Table. Every memory access looks its page up in
+ * the TLB: a page hit with the page's translation cached is a TLB hit, and
+ * any other access, every page fault included, is a TLB miss that walks the
+ * Page Table and caches the translation. An eviction by the PRA invalidates
+ * the victim's entry, so the TLB never translates a page that is not
+ * resident.
+ *
+ * Every entry is tagged with the address space of its page as well as the
+ * virtual page number, like an ASID, so processes of a multi-process trace
+ * that use the same virtual page never share a translation and the TLB needs
+ * no flush when the process changes. Huge pages share the TLB with base
+ * pages: an entry is also tagged with the order of its page, and a huge page
+ * maps to a set by its huge page number, so the huge pages spread over every
+ * set like the base pages do.
+ *
+ * A virtual page maps to set (page mod sets), and each set replaces its least
+ * recently used way. The tags and use times are flat primitive arrays with
+ * the ways of a set side by side, so a lookup is a scan of one set and
+ * allocates nothing.
+ *
+ * @author Steven Montalbano
+ */
+public class TLB implements SimulationListener {
+
+	private final int entries, ways; 	// The size and associativity of the TLB
+	private final int setMask; 			// The number of sets minus one
+	private final long[] tag; 			// The virtual page cached in each entry, set by set, or PRA.EMPTY
+	private final int[] asid; 			// The address space of the virtual page cached in each entry
+	private final int[] pageOrder; 		// log2 of the base pages the page cached in each entry spans
+	private final long[] lastUse; 		// The line number of each entry's last use
+	private long hits, misses, invalidations; // Statistics tracking
+
+	/**
+	 * @param entries the number of entries, a power of two multiple of ways
+	 * @param ways    the number of entries per set
+	 */
+	public TLB(int entries, int ways) {
+		if (entries < 1 || ways < 1 || entries % ways != 0 || Integer.bitCount(entries / ways) != 1)
+			throw new IllegalArgumentException("The TLB entries must be a power of two multiple of its ways");
+
+		this.entries = entries;
+		this.ways = ways;
+		this.setMask = entries / ways - 1;
+		this.tag = new long[entries];
+		this.asid = new int[entries];
+		this.pageOrder = new int[entries];
+		this.lastUse = new long[entries];
+		Arrays.fill(tag, PRA.EMPTY);
+	}
+
+	@Override
+	public void hit(long line, int space, long page, int order, int frame) {
+		int first = ((int) page & setMask) * ways;
+		int victim = first;
+		for (int e = first; e < first + ways; e++) {
+			if (tag[e] == page && asid[e] == space && pageOrder[e] == order) { 	// TLB hit
+				lastUse[e] = line;
+				hits++;
+				return;
+			}
+			if (tag[e] == PRA.EMPTY || (tag[victim] != PRA.EMPTY && lastUse[e] < lastUse[victim]))
+				victim = e;
+		}
+		misses++; 	// A TLB miss on a resident page, the Page Table walk refills the TLB
+		tag[victim] = page;
+		asid[victim] = space;
+		pageOrder[victim] = order;
+		lastUse[victim] = line;
+	}
+
+	@Override
+	public void fault(long line, int space, long page, int order) {
+		hit(line, space, page, order, PRA.EMPTY); // Never cached; a miss that caches the translation once the page is loaded
+	}
+
+	@Override
+	public void evict(long line, int space, long page, int order, int frame, boolean dirty) {
+		int first = ((int) page & setMask) * ways;
+		for (int e = first; e < first + ways; e++) {
+			if (tag[e] == page && asid[e] == space && pageOrder[e] == order) {
+				tag[e] = PRA.EMPTY;
+				invalidations++;
+				return;
+			}
+		}
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public long getInvalidations() {
+		return invalidations;
+	}
+
+	/**
+	 * @return the share of memory accesses whose translation was in the TLB
+	 */
+	public double getHitRate() {
+		return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+	}
+
+	/**
+	 * @return the TLB misses per thousand memory accesses
+	 */
+	public double getMissesPerThousand() {
+		return hits + misses == 0 ? 0 : 1000.0 * misses / (hits + misses);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+				"TLB: %d entries, %d way\nTLB hit rate: %.2f%%\nTLB misses per 1000 accesses: %.2f\n"
+						+ "TLB invalidations: %d\n",
+				entries, ways, 100 * getHitRate(), getMissesPerThousand(), invalidations);
+	}
+}
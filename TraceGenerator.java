@@ -0,0 +1,380 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generates a synthetic trace from seeded workload models, so large
+ * reproducible inputs are available without the real trace files. The same
+ * seed and workload always generate the same trace.
+ *
+ * A workload is a comma separated list of models and options, for example
+ *
+ * <pre>
+ * zipf:70:4096:0.99,scan:20:65536,loop:10:2048,stores=0.25,phase=1m,count=1g,seed=7
+ * </pre>
+ *
+ * Each model is name:weight:pages, where weight is its relative share of the
+ * memory accesses and pages is the size of the region of the address space it
+ * accesses:
+ *
+ * <pre>
+ * zipf:w:pages[:s]  a hot set; page ranks follow a Zipfian distribution with exponent s (default 0.99)
+ * scan:w:pages      a sequential scan that touches each page once, then starts over on a new region
+ * loop:w:pages      a sequential loop over the same pages; larger than RAM it defeats LRU
+ * uniform:w:pages   uniformly random accesses
+ * </pre>
+ *
+ * and the options are
+ *
+ * <pre>
+ * count=n    the number of memory accesses (default 1m)
+ * seed=n     the random seed (default 1550)
+ * stores=r   the fraction of the accesses that are stores (default 0.25)
+ * phase=n    the number of accesses per phase; every phase moves each model to a new region (default never)
+ * </pre>
+ *
+ * Counts take an optional k, m or g suffix for 2^10, 2^20 or 2^30. The generator is a TraceReader, so
+ * it can be handed straight to PRA.run(trace), or written out as a text or
+ * binary trace file. Either way it streams: the memory used does not depend on
+ * the number of accesses. Like a trace file, the generator maps the 4 KB pages
+ * of the 32 bit address space it draws from to page ids with a
+ * RadixPageTable, so the Page Table only needs to hold the distinct pages the
+ * workload touches.
+ *
+ * @author Steven Montalbano
+ */
+public class TraceGenerator extends TraceReader {
+
+	public static final int PAGES = 1 << (32 - PAGE_OFFSET_BITS); // The number of pages in a 32 bit address space
+
+	private final SplittableRandom random; 	// The source of every random choice, seeded for reproducibility
+	private final Model[] models; 			// The workload models the accesses are drawn from
+	private final double[] cumulative; 		// The cumulative share of the accesses of each model
+	private final double storeRatio; 		// The fraction of the accesses that are stores
+	private final long phaseLength; 		// The number of accesses per phase, or 0 for a single phase
+	private final long count; 				// The number of accesses to generate
+	private long generated; 				// The number of accesses generated so far
+
+	/**
+	 * Creates a generator for a workload
+	 *
+	 * @param workload the workload description, see above
+	 * @throws IllegalArgumentException if the workload is malformed
+	 */
+	public TraceGenerator(String workload) {
+		super();
+		this.radix = new RadixPageTable(DEFAULT_PAGES);
+
+		List<Model> models = new ArrayList<>();
+		List<Double> weights = new ArrayList<>();
+		long count = 1 << 20, seed = 1550, phase = 0;
+		double stores = 0.25;
+
+		for (String item : workload.split(",")) {
+			item = item.trim();
+			try {
+				if (item.contains("=")) {
+					String key = item.substring(0, item.indexOf('='));
+					String value = item.substring(item.indexOf('=') + 1);
+					switch (key) {
+					case "count":
+						count = parseCount(value);
+						break;
+					case "seed":
+						seed = Long.parseLong(value);
+						break;
+					case "stores":
+						stores = Double.parseDouble(value);
+						break;
+					case "phase":
+						phase = parseCount(value);
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown workload option " + key);
+					}
+				} else {
+					String[] f = item.split(":");
+					if (f.length < 3)
+						throw new IllegalArgumentException("Expected name:weight:pages in " + item);
+
+					double weight = Double.parseDouble(f[1]);
+					int pages = (int) parseCount(f[2]);
+					if (weight <= 0 || pages < 1 || pages > PAGES)
+						throw new IllegalArgumentException("Bad weight or page count in " + item);
+
+					models.add(Model.create(f[0], pages, f.length > 3 ? Double.parseDouble(f[3]) : 0.99));
+					weights.add(weight);
+				}
+			} catch (NumberFormatException e) {
+				throw new IllegalArgumentException("Bad number in workload item " + item);
+			}
+		}
+
+		if (models.isEmpty())
+			throw new IllegalArgumentException("The workload has no models");
+		if (count < 0 || phase < 0 || stores < 0 || stores > 1)
+			throw new IllegalArgumentException("Bad workload options");
+
+		this.models = models.toArray(new Model[0]);
+		this.cumulative = new double[weights.size()];
+		double total = weights.stream().mapToDouble(Double::doubleValue).sum(), sum = 0;
+		for (int m = 0; m < cumulative.length; m++)
+			cumulative[m] = (sum += weights.get(m)) / total;
+		cumulative[cumulative.length - 1] = 1.0; // Guard against rounding
+
+		this.random = new SplittableRandom(seed);
+		this.storeRatio = stores;
+		this.phaseLength = phase;
+		this.count = count;
+		this.generated = 0;
+
+		relocate();
+	}
+
+	/**
+	 * Generates the next memory access of the trace
+	 *
+	 * @return true if a memory access was generated, false once count accesses
+	 *         have been generated
+	 * @throws IOException if the workload touches more distinct pages than the
+	 *                     page limit
+	 */
+	@Override
+	public boolean next() throws IOException {
+		if (generated == count)
+			return false;
+
+		if (phaseLength > 0 && generated > 0 && generated % phaseLength == 0)
+			relocate(); // Phase change
+
+		double r = random.nextDouble();
+		int m = 0;
+		while (r >= cumulative[m])
+			m++;
+
+		vpn = models[m].next(random);
+		store = random.nextDouble() < storeRatio;
+		lineNum = ++generated;
+		page = translate(vpn);
+		return true;
+	}
+
+	@Override
+	public long size() {
+		return count;
+	}
+
+	/**
+	 * The generated pages are always 4 KB
+	 */
+	@Override
+	public void setPageShift(int shift) throws IOException {
+		if (shift != PAGE_OFFSET_BITS)
+			throw new IOException("Generated workloads only have 4 KB pages");
+	}
+
+	/**
+	 * Moves every model to a new random region of the address space
+	 */
+	private void relocate() {
+		for (Model model : models)
+			model.base = random.nextInt(PAGES - model.pages + 1);
+	}
+
+	/**
+	 * Writes the rest of the trace as a text trace file
+	 *
+	 * @param out the stream to write the trace file to
+	 * @return the number of memory accesses written
+	 * @throws IOException if the stream can not be written
+	 */
+	public long generate(OutputStream out) throws IOException {
+		byte[] text = new byte[BUFFER_SIZE];
+		int n = 0;
+		long written = 0;
+
+		while (next()) {
+			if (n > text.length - 14) {
+				out.write(text, 0, n);
+				n = 0;
+			}
+
+			long addr = vpn << PAGE_OFFSET_BITS;
+			text[n++] = (byte) (store ? 's' : 'l');
+			text[n++] = ' ';
+			text[n++] = '0';
+			text[n++] = 'x';
+			for (int shift = 28; shift >= 0; shift -= 4)
+				text[n++] = (byte) Character.forDigit((int) (addr >>> shift) & 0xF, 16);
+			text[n++] = '\n';
+			written++;
+		}
+		out.write(text, 0, n);
+		out.flush();
+		return written;
+	}
+
+	/**
+	 * Writes the rest of the trace to a binary trace file
+	 *
+	 * @param out the binary trace file to write to
+	 * @return the number of memory accesses written
+	 * @throws IOException if the file can not be written
+	 */
+	public long generate(TraceWriter out) throws IOException {
+		long written = 0;
+		while (next()) {
+			out.write(vpn, store);
+			written++;
+		}
+		return written;
+	}
+
+	/**
+	 * @param value a count with an optional k, m or g suffix
+	 * @return the count
+	 */
+	private static long parseCount(String value) {
+		char suffix = Character.toLowerCase(value.charAt(value.length() - 1));
+		int shift = suffix == 'k' ? 10 : suffix == 'm' ? 20 : suffix == 'g' ? 30 : 0;
+		if (shift > 0)
+			value = value.substring(0, value.length() - 1);
+		return Long.parseLong(value) << shift;
+	}
+
+	/**
+	 * A workload model; draws page numbers from a region of pages consecutive
+	 * pages starting at base.
+	 */
+	private abstract static class Model {
+
+		final int pages; 	// The size of the region
+		int base; 			// The first page of the region, moved on every phase change
+
+		Model(int pages) {
+			this.pages = pages;
+		}
+
+		static Model create(String name, int pages, double s) {
+			switch (name) {
+			case "zipf":
+				return new Zipf(pages, s);
+			case "scan":
+				return new Scan(pages);
+			case "loop":
+				return new Loop(pages);
+			case "uniform":
+				return new Model(pages) {
+					@Override
+					int next(SplittableRandom random) {
+						return base + random.nextInt(pages);
+					}
+				};
+			default:
+				throw new IllegalArgumentException("Unknown workload model " + name);
+			}
+		}
+
+		/**
+		 * @param random the generator's source of randomness
+		 * @return the page number of the next memory access
+		 */
+		abstract int next(SplittableRandom random);
+	}
+
+	/**
+	 * Sequential loop over the same region
+	 */
+	private static class Loop extends Model {
+
+		int pos; // The offset of the next page into the region
+
+		Loop(int pages) {
+			super(pages);
+		}
+
+		@Override
+		int next(SplittableRandom random) {
+			int page = base + pos;
+			if (++pos == pages)
+				pos = 0;
+			return page;
+		}
+	}
+
+	/**
+	 * Sequential scan; each pass goes over a fresh region, so no page is reused
+	 */
+	private static class Scan extends Loop {
+
+		Scan(int pages) {
+			super(pages);
+		}
+
+		@Override
+		int next(SplittableRandom random) {
+			if (pos == 0)
+				base = random.nextInt(PAGES - pages + 1);
+			return super.next(random);
+		}
+	}
+
+	/**
+	 * Zipfian hot set: the page of rank k is accessed with probability
+	 * proportional to 1 / k^s. Sampled in constant time and memory by
+	 * rejection-inversion (Hormann and Derflinger, 1996), so the hot set can be
+	 * as large as the address space.
+	 */
+	private static class Zipf extends Model {
+
+		final double s; 			// The exponent
+		final double hIntegralX1; 	// H(1.5) - 1
+		final double hIntegralN; 	// H(pages + 0.5)
+		final double threshold; 	// Accepts a sample without evaluating H
+
+		Zipf(int pages, double s) {
+			super(pages);
+			if (s <= 0)
+				throw new IllegalArgumentException("The Zipf exponent must be positive");
+			this.s = s;
+			this.hIntegralX1 = hIntegral(1.5) - 1;
+			this.hIntegralN = hIntegral(pages + 0.5);
+			this.threshold = 2 - hIntegralInverse(hIntegral(2.5) - h(2));
+		}
+
+		@Override
+		int next(SplittableRandom random) {
+			while (true) {
+				double u = hIntegralN + random.nextDouble() * (hIntegralX1 - hIntegralN);
+				double x = hIntegralInverse(u);
+				int k = (int) Math.max(1, Math.min(pages, (long) (x + 0.5)));
+				if (k - x <= threshold || u >= hIntegral(k + 0.5) - h(k))
+					return base + k - 1;
+			}
+		}
+
+		private double h(double x) {
+			return Math.exp(-s * Math.log(x));
+		}
+
+		private double hIntegral(double x) {
+			double logX = Math.log(x);
+			return helper2((1 - s) * logX) * logX;
+		}
+
+		private double hIntegralInverse(double x) {
+			double t = Math.max(-1, x * (1 - s));
+			return Math.exp(helper1(t) * x);
+		}
+
+		private static double helper1(double x) { // log(1 + x) / x, accurate near 0
+			return Math.abs(x) > 1e-8 ? Math.log1p(x) / x : 1 - x * (0.5 - x * (1 / 3.0 - 0.25 * x));
+		}
+
+		private static double helper2(double x) { // (exp(x) - 1) / x, accurate near 0
+			return Math.abs(x) > 1e-8 ? Math.expm1(x) / x : 1 + x * 0.5 * (1 + x / 3 * (1 + 0.25 * x));
+		}
+	}
+}
@@ -0,0 +1,431 @@
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads the memory accesses of a .trace file one at a time. The reader scans
+ * the raw bytes of the file out of a single large reusable buffer and decodes
+ * the mode character and hex address of each line directly into primitives,
+ * so reading a trace allocates nothing per memory access. All of the PRA
+ * implementations share this reader.
+ *
+ * The bytes are either read from a FileInputStream, or, in mapped mode, bulk
+ * copied out of the file memory mapped with FileChannel.map. A mapping is
+ * limited to 2 GB, so larger files are mapped one window at a time and the
+ * window is rolled forward as the trace is consumed. Both modes feed the same
+ * decode loop, and mapped mode lets the OS page cache share one trace across
+ * repeated runs.
+ *
+ * Addresses are full 64 bit virtual addresses. A reader over a file looks up
+ * the virtual page number of every access in its own RadixPageTable, and
+ * page() is the dense page id the table maps it to, which the PRAs index
+ * their Page Table by; vpn() is the virtual page number itself. Pages are
+ * 4 KB unless setPageShift picks another power of two, from 4 KB to 1 TB.
+ *
+ * Each line of a trace file has the form
+ *
+ * <pre>
+ * l 0x00001000
+ * s 0x00002000
+ * </pre>
+ *
+ * and may start with the decimal PID of the process making the access, for a
+ * trace of several processes that each have an address space of their own:
+ *
+ * <pre>
+ * 17 l 0x00001000
+ * 42 s 0x00001000
+ * </pre>
+ *
+ * Usage:
+ *
+ * <pre>
+ * while (trace.next()) {
+ * 	int index = trace.page();
+ * 	boolean store = trace.isStore();
+ * }
+ * </pre>
+ *
+ * @author Steven Montalbano
+ */
+public class TraceReader implements Closeable {
+
+	public static final int PAGE_OFFSET_BITS = 12; // By default the 12 right most bits of an address are the offset into its page
+	public static final int MIN_PAGE_SHIFT = 64 - RadixPageTable.VPN_BITS; // The smallest page size is 4 KB
+	public static final int MAX_PAGE_SHIFT = 40; 	// The largest page size is 1 TB
+	public static final int DEFAULT_PAGES = 1 << 20; // The default number of distinct pages a trace may touch
+	protected static final int BUFFER_SIZE = 1 << 20; // The size of the reusable read buffer in bytes
+	protected static final long MAP_WINDOW = 1L << 30; // The size of each memory mapped window of the file in bytes
+
+	private static final byte[] HEX = new byte[256]; // Maps an ASCII character to its hex digit value, or -1
+
+	static {
+		for (int c = 0; c < HEX.length; c++)
+			HEX[c] = -1;
+		for (int c = '0'; c <= '9'; c++)
+			HEX[c] = (byte) (c - '0');
+		for (int c = 'a'; c <= 'f'; c++)
+			HEX[c] = (byte) (c - 'a' + 10);
+		for (int c = 'A'; c <= 'F'; c++)
+			HEX[c] = (byte) (c - 'A' + 10);
+	}
+
+	private final InputStream in; 	// The trace file, or null in mapped mode
+	private final FileChannel channel; 	// The trace file in mapped mode, or null
+	private MappedByteBuffer window; 	// The currently mapped window of the file in mapped mode
+	private long windowEnd; 		// The file position the current window ends at
+	protected final byte[] buf; 	// The reusable read buffer
+	protected int pos, limit; 		// The next unread byte and the end of the valid bytes in buf
+	protected long lineNum; 		// The line number of the memory access last decoded
+	private long newlines; 			// The number of line breaks consumed so far
+
+	protected RadixPageTable radix; // Maps the virtual page numbers to page ids, or null if they are the same
+	protected int page; 			// The page id of the memory access last decoded
+	protected long vpn; 			// The virtual page number of the memory access last decoded
+	protected int pid; 				// The PID of the memory access last decoded, 0 for a trace without PIDs
+	private int lastPid = -1; 		// The PID of the address space last translated in, or -1
+	private int space; 				// The address space of lastPid
+	protected boolean store; 		// Was the memory access last decoded a store instruction?
+	protected int pageShift = PAGE_OFFSET_BITS; // The number of offset bits dropped from each address
+
+	/**
+	 * Opens a text or binary trace file for reading, telling the two formats
+	 * apart by the magic number at the start of binary trace files.
+	 *
+	 * @param traceFile the name of the trace file
+	 * @param mapped    true to memory map the file instead of streaming it
+	 * @return a TraceReader for the file's format
+	 * @throws IOException if the file can not be opened
+	 * @see TraceWriter.java
+	 */
+	public static TraceReader open(String traceFile, boolean mapped) throws IOException {
+		byte[] magic = new byte[TraceWriter.MAGIC.length];
+		int n;
+
+		try (InputStream in = new FileInputStream(traceFile)) {
+			n = in.readNBytes(magic, 0, magic.length);
+		}
+
+		if (n == magic.length && Arrays.equals(magic, TraceWriter.MAGIC))
+			return new BinaryTraceReader(traceFile, mapped);
+		return new TraceReader(traceFile, mapped);
+	}
+
+	/**
+	 * Opens a trace file for reading
+	 *
+	 * @param traceFile the name of the trace file
+	 * @throws IOException if the file can not be opened
+	 */
+	public TraceReader(String traceFile) throws IOException {
+		this(new FileInputStream(traceFile));
+	}
+
+	/**
+	 * Opens a trace file for reading
+	 *
+	 * @param traceFile the name of the trace file
+	 * @param mapped    true to memory map the file instead of streaming it
+	 * @throws IOException if the file can not be opened
+	 */
+	public TraceReader(String traceFile, boolean mapped) throws IOException {
+		this(mapped ? null : new FileInputStream(traceFile),
+				mapped ? FileChannel.open(Paths.get(traceFile), StandardOpenOption.READ) : null);
+	}
+
+	protected TraceReader(InputStream in) {
+		this(in, null);
+	}
+
+	/**
+	 * Constructor for readers whose memory accesses do not come from a file and
+	 * override next(); no read buffer is allocated.
+	 */
+	protected TraceReader() {
+		this.in = null;
+		this.channel = null;
+		this.buf = new byte[0];
+	}
+
+	private TraceReader(InputStream in, FileChannel channel) {
+		this.in = in;
+		this.channel = channel;
+		this.windowEnd = 0;
+		this.buf = new byte[BUFFER_SIZE];
+		this.pos = this.limit = 0;
+		this.lineNum = this.newlines = 0;
+		this.radix = new RadixPageTable(DEFAULT_PAGES);
+	}
+
+	/**
+	 * Decodes the next memory access of the trace. Blank lines are skipped.
+	 *
+	 * @return true if a memory access was decoded, false at the end of the trace
+	 * @throws IOException if the trace can not be read or a line is malformed
+	 */
+	public boolean next() throws IOException {
+
+		int c = read();
+
+		while (c == '\n' || c == '\r' || c == ' ' || c == '\t') { // Skip blank lines and leading whitespace
+			if (c == '\n')
+				newlines++;
+			c = read();
+		}
+
+		if (c == -1) // End of the trace
+			return false;
+
+		lineNum = newlines + 1;
+
+		pid = 0;
+		if (c >= '0' && c <= '9') { 	// Parse the optional PID
+			do {
+				pid = pid * 10 + (c - '0');
+				if (pid > RadixPageTable.MAX_PID)
+					throw malformed("PID is larger than " + RadixPageTable.MAX_PID);
+			} while ((c = read()) >= '0' && c <= '9');
+
+			if (c != ' ' && c != '\t')
+				throw malformed("expected whitespace after the PID");
+			while (c == ' ' || c == '\t')
+				c = read();
+		}
+
+		if (c == 'l') 	// Parse the mode char
+			store = false;
+		else if (c == 's')
+			store = true;
+		else
+			throw malformed("expected mode l or s");
+
+		c = read();
+		if (c != ' ' && c != '\t')
+			throw malformed("expected whitespace after the mode");
+		while (c == ' ' || c == '\t')
+			c = read();
+
+		if (c != '0' || ((c = read()) != 'x' && c != 'X'))
+			throw malformed("expected a hex address starting with 0x");
+
+		long hex = 0; 	// Parse the hex memory address directly into a long
+		int digits = 0;
+		int d;
+		while ((c = read()) != -1 && (d = HEX[c]) >= 0) {
+			hex = (hex << 4) | d;
+			digits++;
+		}
+
+		if (digits == 0 || digits > 16)
+			throw malformed("expected 1 to 16 hex digits");
+
+		while (c == ' ' || c == '\t' || c == '\r') // Skip trailing whitespace
+			c = read();
+
+		if (c == '\n')
+			newlines++;
+		else if (c != -1)
+			throw malformed("unexpected character after the address");
+
+		vpn = hex >>> pageShift; // The offset does not apply to this simulation
+		page = translate(vpn);
+		return true;
+	}
+
+	/**
+	 * @return the page id of the memory access last decoded, the index into the
+	 *         Page Table
+	 */
+	public int page() {
+		return page;
+	}
+
+	/**
+	 * @return the virtual page number of the memory access last decoded
+	 */
+	public long vpn() {
+		return vpn;
+	}
+
+	/**
+	 * @return the address space of the memory access last decoded, numbered
+	 *         from 0 in order of each process's first access
+	 */
+	public int process() {
+		return radix == null ? 0 : radix.spaceOf(page);
+	}
+
+	/**
+	 * @return the PID of the memory access last decoded, 0 for a trace without
+	 *         PIDs
+	 */
+	public int pid() {
+		return radix == null ? pid : radix.pidOf(process());
+	}
+
+	/**
+	 * @return the table mapping the virtual page numbers of the trace to page
+	 *         ids, or null if every page id is its virtual page number
+	 */
+	public RadixPageTable radixTable() {
+		return radix;
+	}
+
+	/**
+	 * Sets the number of distinct pages the trace may touch, the size of the Page
+	 * Table of the PRA it is simulated by. Must be called before the first memory
+	 * access is decoded.
+	 *
+	 * @param pages the number of distinct pages
+	 */
+	public void setPageLimit(int pages) {
+		if (radix != null && radix.getPageCount() == 0)
+			radix = new RadixPageTable(pages);
+	}
+
+	/**
+	 * Stops mapping the virtual page numbers to page ids, for a reader that only
+	 * needs vpn(), pid() and isStore(), like the converter. The trace may then
+	 * touch any number of distinct pages, and page() and process() are always 0.
+	 * Must be called before the first memory access is decoded.
+	 */
+	public void dropPageIds() {
+		radix = null;
+	}
+
+	/**
+	 * Sets the page size the addresses of the trace are split at. Must be called
+	 * before the first memory access is decoded.
+	 *
+	 * @param shift the number of offset bits of a page, log2 of the page size
+	 * @throws IOException if the trace can not be read with pages of that size
+	 */
+	public void setPageShift(int shift) throws IOException {
+		if (shift < MIN_PAGE_SHIFT || shift > MAX_PAGE_SHIFT)
+			throw new IllegalArgumentException("The page size must be a power of two from 4 KB to 1 TB");
+		this.pageShift = shift;
+	}
+
+	/**
+	 * @return the number of offset bits of a page, log2 of the page size
+	 */
+	public int pageShift() {
+		return pageShift;
+	}
+
+	/**
+	 * @param vpn a virtual page number of the trace, in the address space of pid
+	 * @return the page id of the page
+	 * @throws IOException if the trace touches more distinct pages than the limit
+	 */
+	protected final int translate(long vpn) throws IOException {
+		if (radix == null)
+			return 0; 	// Page ids were dropped
+		if (pid != lastPid) { 	// Only look the address space up when the process changes
+			space = radix.space(pid);
+			lastPid = pid;
+		}
+		int id = radix.lookup(space, vpn);
+		if (id < 0)
+			throw new IOException(String.format("The trace touches more than %d distinct pages at line %d",
+					radix.getCapacity(), lineNum));
+		return id;
+	}
+
+	/**
+	 * @return true if the memory access last decoded was a store instruction
+	 */
+	public boolean isStore() {
+		return store;
+	}
+
+	/**
+	 * @return the number of memory accesses in the trace if it is known up front,
+	 *         or -1
+	 */
+	public long size() {
+		return -1;
+	}
+
+	/**
+	 * @return the line number of the memory access last decoded
+	 */
+	public long lineNumber() {
+		return lineNum;
+	}
+
+	/**
+	 * @return the next byte of the trace as an unsigned value, or -1 at the end
+	 *         of the trace
+	 * @throws IOException if the trace can not be read
+	 */
+	protected final int read() throws IOException {
+		if (pos == limit && !fill())
+			return -1;
+		return buf[pos++] & 0xFF;
+	}
+
+	/**
+	 * Refills buf with the next bytes of the trace once every byte in it has been
+	 * consumed.
+	 *
+	 * @return false if there are no more bytes in the trace
+	 * @throws IOException if the trace can not be read
+	 */
+	protected boolean fill() throws IOException {
+		if (channel != null)
+			return fillMapped();
+
+		int n = in.read(buf, 0, buf.length);
+		pos = 0;
+		limit = Math.max(n, 0);
+		return n > 0;
+	}
+
+	/**
+	 * Refills buf from the mapped window of the file, rolling the window forward
+	 * to the next part of the file once it has been consumed.
+	 *
+	 * @return false if there are no more bytes in the trace
+	 * @throws IOException if the file can not be mapped
+	 */
+	private boolean fillMapped() throws IOException {
+		if (window == null || !window.hasRemaining()) {
+			long size = channel.size();
+			if (windowEnd >= size)
+				return false;
+
+			long start = windowEnd;
+			windowEnd = Math.min(size, start + MAP_WINDOW);
+			window = channel.map(FileChannel.MapMode.READ_ONLY, start, windowEnd - start);
+		}
+
+		int n = Math.min(window.remaining(), buf.length);
+		window.get(buf, 0, n);
+		pos = 0;
+		limit = n;
+		return true;
+	}
+
+	/**
+	 * @param reason what was wrong with the line
+	 * @return an exception reporting the malformed line and its line number
+	 */
+	protected IOException malformed(String reason) {
+		return new IOException(String.format("Malformed trace line %d: %s", newlines + 1, reason));
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (channel != null)
+			channel.close();
+		else if (in != null)
+			in.close();
+	}
+}
@@ -0,0 +1,179 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes memory accesses to a compact binary trace file that can be replayed
+ * without parsing hex text. The file starts with a 16 byte header:
+ *
+ * <pre>
+ * offset  size  field
+ * 0       4     magic "VMTR"
+ * 4       1     format version
+ * 5       1     flags; bit 0 set when the records are delta/varint encoded
+ * 6       1     page shift; the number of offset bits dropped from each address
+ * 7       1     reserved
+ * 8       8     number of memory accesses (big endian)
+ * </pre>
+ *
+ * The header is followed by one record per memory access with the load/store
+ * bit folded into the low bit of the page number. Plain records are a 4 byte
+ * big endian (page number << 1) | store bit, so they only hold page numbers
+ * below 2^31, the addresses of a 43 bit address space. Delta records are the zig-zag
+ * encoded difference from the previous page number, shifted left over the
+ * store bit and written as a LEB128 varint, which takes 1 or 2 bytes for most
+ * accesses of a trace with locality.
+ *
+ * @see BinaryTraceReader.java
+ * @author Steven Montalbano
+ */
+public class TraceWriter implements Closeable {
+
+	public static final byte[] MAGIC = { 'V', 'M', 'T', 'R' };
+	public static final int VERSION = 1;
+	public static final int FLAG_DELTA = 1; // The records are delta/varint encoded
+	public static final int HEADER_SIZE = 16;
+
+	private final FileChannel channel; 	// The binary trace file
+	private final ByteBuffer out; 		// The reusable write buffer
+	private final boolean delta; 		// Are the records delta/varint encoded?
+	private final int pageShift; 		// The number of offset bits dropped from each address
+	private long count; 				// The number of memory accesses written
+	private long previous; 				// The page number of the previous memory access, for delta encoding
+
+	/**
+	 * Creates a binary trace file, replacing it if it exists
+	 *
+	 * @param traceFile the name of the binary trace file
+	 * @param delta     true to delta/varint encode the records
+	 * @param pageShift the number of offset bits dropped from each address
+	 * @throws IOException if the file can not be created
+	 */
+	public TraceWriter(String traceFile, boolean delta, int pageShift) throws IOException {
+		this.channel = FileChannel.open(Paths.get(traceFile), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.out = ByteBuffer.allocate(TraceReader.BUFFER_SIZE);
+		this.delta = delta;
+		this.pageShift = pageShift;
+		this.count = 0;
+		this.previous = 0;
+
+		writeHeader(); // The access count is patched in by close()
+	}
+
+	/**
+	 * Appends a memory access to the trace
+	 *
+	 * @param page  the virtual page number accessed
+	 * @param store true for a store instruction, false for a load
+	 * @throws IOException if the file can not be written
+	 */
+	public void write(long page, boolean store) throws IOException {
+		if (out.remaining() < 10) // The longest varint is 10 bytes
+			flush();
+
+		if (delta) {
+			long diff = page - previous;
+			long value = (((diff << 1) ^ (diff >> 63)) << 1) | (store ? 1 : 0); // zig-zag, then fold in the store bit
+			while ((value & ~0x7FL) != 0) {
+				out.put((byte) ((value & 0x7F) | 0x80));
+				value >>>= 7;
+			}
+			out.put((byte) value);
+			previous = page;
+		} else {
+			if (page < 0 || page > Integer.MAX_VALUE)
+				throw new IOException(String.format("Page number %x does not fit a plain record, use --delta", page));
+			out.putInt(((int) page << 1) | (store ? 1 : 0));
+		}
+		count++;
+	}
+
+	/**
+	 * @return the number of memory accesses written so far
+	 */
+	public long getCount() {
+		return count;
+	}
+
+	private void flush() throws IOException {
+		out.flip();
+		while (out.hasRemaining())
+			channel.write(out);
+		out.clear();
+	}
+
+	private void writeHeader() throws IOException {
+		out.put(MAGIC);
+		out.put((byte) VERSION);
+		out.put((byte) (delta ? FLAG_DELTA : 0));
+		out.put((byte) pageShift);
+		out.put((byte) 0);
+		out.putLong(count);
+	}
+
+	/**
+	 * Flushes the remaining records and patches the final access count into the
+	 * header before closing the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+			ByteBuffer header = ByteBuffer.allocate(8);
+			header.putLong(count).flip();
+			while (header.hasRemaining())
+				channel.write(header, 8 + header.position());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Converts a text or binary trace file into a binary trace file
+	 *
+	 * @param in    the name of the trace file to convert
+	 * @param out   the name of the binary trace file to create
+	 * @param delta true to delta/varint encode the records
+	 * @return the number of memory accesses converted
+	 * @throws IOException if either file can not be read or written, or the input
+	 *                     has a malformed line
+	 */
+	public static long convert(String in, String out, boolean delta) throws IOException {
+		return convert(in, out, delta, -1);
+	}
+
+	/**
+	 * Converts a text or binary trace file into a binary trace file of another
+	 * page size
+	 *
+	 * @param in        the name of the trace file to convert
+	 * @param out       the name of the binary trace file to create
+	 * @param delta     true to delta/varint encode the records
+	 * @param pageShift the number of offset bits of a page of the output, or -1
+	 *                  for the page size of the input
+	 * @return the number of memory accesses converted
+	 * @throws IOException if either file can not be read or written, or the input
+	 *                     has a malformed line
+	 */
+	public static long convert(String in, String out, boolean delta, int pageShift) throws IOException {
+		try (TraceReader trace = TraceReader.open(in, false)) {
+			trace.dropPageIds(); 	// Only the virtual page numbers are written, so any number of pages converts
+			if (pageShift >= 0)
+				trace.setPageShift(pageShift);
+
+			try (TraceWriter writer = new TraceWriter(out, delta, trace.pageShift())) {
+				while (trace.next()) {
+					if (trace.pid() != 0)
+						throw new IOException(String.format("Binary traces hold a single process, line %d has PID %d",
+								trace.lineNumber(), trace.pid()));
+					writer.write(trace.vpn(), trace.isStore());
+				}
+				return writer.getCount();
+			}
+		}
+	}
+}
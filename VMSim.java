@@ -1,4 +1,11 @@
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A Virtual Memory Algorithm simulation to run the Optimal (OPT), Least 
@@ -21,59 +28,310 @@ public class VMSim {
 	 */
 	private static boolean DEBUG_MODE = true; // Boolean flag to turn on/off debugging print statements inside debugPrint(String s)
 	private static int DEBUG_LEVEL = 2; // Controls the granularity of debugPrint() messages
-	private static String traceFile; // String representation of the trace file name
-	private static String algName; // String representation of the algorithm choice from the cmd line
-	protected static PRA alg; // The Page Replacement Algorithm
-	private static int numFrames; // The amount of Frames in Physical Memory (RAM)
-	private static final int numPages = (int) Math.pow(2, 20); 	// The size of the Page Table = 2^y where y == the bit
-																// length of the page address. In this simulation, all
-																// addresses are 32 bits meaning the first 22 bits are
-																// the memory address and the last 12 bits are the
-																// physical memory offset
+	private static final int numPages = TraceReader.DEFAULT_PAGES; // The default size of the Page Table, the number of
+																	// distinct pages a trace may touch. Addresses are
+																	// 64 bits; the radix page table of each trace maps
+																	// the pages it touches to the Page Table entries
+
+	/**
+	 * The options parsed from the cmd line. Kept in an instance instead of static
+	 * fields so that nothing about one simulation is shared with another.
+	 */
+	private static class Args {
+		String traceFile; 		// String representation of the trace file name
+		String algName; 		// String representation of the algorithm choice from the cmd line
+		int numFrames; 			// The amount of Frames in Physical Memory (RAM)
+		boolean mmap; 			// Should the trace file be memory mapped instead of streamed?
+		boolean external; 		// Should OPT run out of spill files instead of holding the trace in memory?
+		boolean pipeline; 		// Should the trace file be decoded on a separate thread?
+		String workload; 		// The synthetic workload to simulate in place of a trace file, or null
+		String report; 			// The file to write the JSON run report to, or null
+		String evictLog; 		// The file to stream the binary eviction log to, or null
+		boolean counters; 		// Should the event counters be printed?
+		long tau; 				// The WSClock working set window in memory accesses, or 0 for the default
+		int agingBits; 			// The AGING counter width, or 0 for the default
+		long tick; 				// The AGING clock tick interval in memory accesses, or 0 for the default
+		int pages; 				// The number of distinct pages the trace may touch, or 0 for the default
+		int tlbEntries, tlbWays; // The size and associativity of the TLB, or 0 for no TLB
+		double lambda = Double.NaN; // The LRFU λ, or NaN for the default
+		long decay; 			// The LFU and LRFU count halving interval in memory accesses, or 0 for none
+		String local; 			// The frame allocation policy of local LRU, or null for global replacement
+		long pff; 				// The PFF window in a process's own memory accesses, or 0 for the default
+		boolean perProcess; 	// Should the statistics of each process be printed?
+		int pageShift = -1; 	// log2 of the page size, or -1 for the trace file's own
+		String huge; 			// The huge page promotion policy of LRU, or null for base pages only
+	}
 
 	/**
 	 * Parse cmd line args in any order
 	 * 
 	 * @param args the array of arguments
+	 * @return the parsed options
 	 * @throws NumberFormatException in the case of a String in place where an int
 	 *                               is expected, or vice versa
 	 * @throws FileNotFoundException is the user enters a trace file that is not
 	 *                               found in this directory
 	 */
-	private static void parseArgs(String[] args) {
+	private static Args parseArgs(String[] args) {
+		Args parsed = new Args();
 		try {
 			for (int i = 0; i <= args.length - 1; i++) {
 				switch (args[i]) {
 				case "-n":
-					numFrames = Integer.parseInt(args[++i]);
+					parsed.numFrames = Integer.parseInt(args[++i]);
+					break;
+				case "--mmap":
+					parsed.mmap = true;
+					break;
+				case "--external":
+					parsed.external = true;
+					break;
+				case "--pipeline":
+					parsed.pipeline = true;
+					break;
+				case "--generate":
+					parsed.workload = args[++i];
+					break;
+				case "--report":
+					parsed.report = args[++i];
+					break;
+				case "--evict-log":
+					parsed.evictLog = args[++i];
+					break;
+				case "--counters":
+					parsed.counters = true;
+					break;
+				case "--tau":
+					parsed.tau = Long.parseLong(args[++i]);
+					break;
+				case "--aging-bits":
+					parsed.agingBits = Integer.parseInt(args[++i]);
+					break;
+				case "--tick":
+					parsed.tick = Long.parseLong(args[++i]);
+					break;
+				case "--lambda":
+					parsed.lambda = Double.parseDouble(args[++i]);
+					break;
+				case "--decay":
+					parsed.decay = Long.parseLong(args[++i]);
+					break;
+				case "--local":
+					parsed.local = args[++i];
+					break;
+				case "--pff":
+					parsed.pff = Long.parseLong(args[++i]);
+					break;
+				case "--per-process":
+					parsed.perProcess = true;
+					break;
+				case "--page-size":
+					parsed.pageShift = pageShiftOf(args[++i]);
+					break;
+				case "--huge":
+					parsed.huge = args[++i];
+					break;
+				case "--pages":
+					parsed.pages = Integer.parseInt(args[++i]);
+					break;
+				case "--tlb": 	// entries,ways
+					String[] tlb = args[++i].split(",");
+					parsed.tlbEntries = Integer.parseInt(tlb[0]);
+					parsed.tlbWays = Integer.parseInt(tlb[1]);
 					break;
 				case "-a":
-					algName = args[i + 1].toUpperCase();
-					if (!(algName.equals("OPT") || algName.equals("LRU") || algName.equals("SECOND"))) {
-						System.err.printf("Algorithm %s Not Supported:\n", algName);
+					parsed.algName = args[i + 1].toUpperCase();
+					if (!isSupported(parsed.algName)) {
+						System.err.printf("Algorithm %s Not Supported:\n", parsed.algName);
 						showUsage();
 					}
 					i++;
 					break;
 				default:
-					traceFile = args[i];
+					parsed.traceFile = args[i];
 					break;
 				}
 			}
-		} catch (NumberFormatException e) {
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
 			System.out.println("Error parsing arguments, types may be used incorrectly.");
 			showUsage();
 		}
+		return parsed;
+	}
+
+	/**
+	 * @param algName an algorithm name from the cmd line, in upper case
+	 * @return true if the simulator implements the algorithm
+	 */
+	private static boolean isSupported(String algName) {
+		return algName.equals("OPT") || algName.equals("LRU") || algName.equals("SECOND") || algName.equals("ARC")
+				|| algName.equals("LIRS") || algName.equals("CLOCKPRO") || algName.equals("WSCLOCK")
+				|| algName.equals("AGING") || algName.equals("LFU") || algName.equals("LRFU");
+	}
+
+	/**
+	 * Creates a new instance of the Page Replacement Algorithm passed in from the
+	 * cmd line. Every instance carries its own state, so the simulations can be
+	 * run at the same time.
+	 *
+	 * @param algName the algorithm name, in upper case
+	 * @param frames  the number of Physical Memory frames in RAM
+	 * @param pages   the size of the Page Table
+	 * @return the new PRA
+	 */
+	static PRA createAlgorithm(String algName, int frames, int pages) {
+		switch (algName) {
+		case "OPT":
+			return new OPT(frames, pages);
+		case "LRU":
+			return new LRU(frames, pages);
+		case "SECOND":
+			return new SecondChance(frames, pages);
+		case "ARC":
+			return new ARC(frames, pages);
+		case "LIRS":
+			return new LIRS(frames, pages);
+		case "CLOCKPRO":
+			return new ClockPro(frames, pages);
+		case "WSCLOCK":
+			return new WSClock(frames, pages);
+		case "AGING":
+			return new Aging(frames, pages);
+		case "LFU":
+			return new LFU(frames, pages);
+		case "LRFU":
+			return new LRFU(frames, pages);
+		default:
+			throw new IllegalArgumentException("Algorithm " + algName + " Not Supported");
+		}
+	}
+
+	/**
+	 * Creates the Page Replacement Algorithm passed in from the cmd line along
+	 * with the algorithm specific options
+	 *
+	 * @param a the parsed options
+	 * @return the new PRA
+	 */
+	private static PRA createAlgorithm(Args a) {
+		int pages = a.pages > 0 ? a.pages : numPages;
+		try {
+			if (pages > DecodedTrace.MAX_PAGES && (a.algName.equals("OPT") || a.pipeline))
+				throw new IllegalArgumentException(String.format(
+						"OPT and --pipeline pack page numbers into 30 bits, --pages must be at most %d",
+						DecodedTrace.MAX_PAGES));
+			if (a.huge != null) {
+				if (!a.algName.equals("LRU") || a.local != null)
+					throw new IllegalArgumentException("Huge pages are only supported for global LRU");
+				return new HugePageLRU(a.numFrames, pages, HugePageLRU.policyOf(a.huge));
+			}
+			if (a.local != null) {
+				if (!a.algName.equals("LRU"))
+					throw new IllegalArgumentException("Local replacement is only supported for LRU");
+				LocalLRU local = new LocalLRU(a.numFrames, pages, LocalLRU.policyOf(a.local));
+				if (a.pff > 0)
+					local.setWindow(a.pff);
+				return local;
+			}
+			switch (a.algName) {
+			case "OPT":
+				return a.external ? new ExternalOPT(a.numFrames, pages) : new OPT(a.numFrames, pages);
+			case "AGING":
+				return new Aging(a.numFrames, pages, a.agingBits > 0 ? a.agingBits : Aging.DEFAULT_BITS,
+						a.tick > 0 ? a.tick : a.numFrames);
+			case "WSCLOCK":
+				WSClock ws = new WSClock(a.numFrames, pages);
+				if (a.tau > 0)
+					ws.setWindow(a.tau);
+				return ws;
+			case "LFU":
+				LFU lfu = new LFU(a.numFrames, pages);
+				lfu.setDecay(a.decay);
+				return lfu;
+			case "LRFU":
+				LRFU lrfu = new LRFU(a.numFrames, pages, Double.isNaN(a.lambda) ? LRFU.DEFAULT_LAMBDA : a.lambda);
+				lrfu.setDecay(a.decay);
+				return lrfu;
+			default:
+				return createAlgorithm(a.algName, a.numFrames, pages);
+			}
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			showUsage();
+			return null;
+		}
+	}
+
+	/**
+	 * Parses a page size from the cmd line, in bytes with an optional K, M or G
+	 * suffix, and exits with the usage if it is not a power of two
+	 *
+	 * @param size the page size, such as 4096, 8K or 2M
+	 * @return log2 of the page size
+	 */
+	private static int pageShiftOf(String size) {
+		long bytes = 0;
+		try {
+			char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+			int scale = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+			bytes = Long.parseLong(scale == 0 ? size : size.substring(0, size.length() - 1)) << scale;
+		} catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+			// Reported below
+		}
+		int shift = Long.numberOfTrailingZeros(bytes);
+		if (Long.bitCount(bytes) != 1 || shift < TraceReader.MIN_PAGE_SHIFT || shift > TraceReader.MAX_PAGE_SHIFT) {
+			System.out.println("The page size must be a power of two from 4 KB to 1 TB");
+			showUsage();
+		}
+		return shift;
+	}
+
+	/**
+	 * @param bytes a size in bytes
+	 * @return the size in the largest binary unit it is a whole number of, like
+	 *         4 KB or 2 MB
+	 */
+	static String formatSize(long bytes) {
+		String[] units = { "bytes", "KB", "MB", "GB", "TB" };
+		int unit = 0;
+		while (unit < units.length - 1 && bytes >= 1024 && bytes % 1024 == 0) {
+			bytes >>= 10;
+			unit++;
+		}
+		return bytes + " " + units[unit];
 	}
 
 	/**
 	 * Prints the statistics of the algorithm simulation
+	 *
+	 * @param alg       the algorithm that was simulated
+	 * @param numFrames the amount of Frames in Physical Memory (RAM)
 	 */
-	private static void printResults() {
+	private static void printResults(PRA alg, int numFrames) {
 		System.out.printf(
 				"Algorithm: %s\n" + "Number of frames: %d\n" + "Total memory accesses: %d\n"
 						+ "Total page faults: %d\n" + "Total writes to disk: %d\n",
 				alg, numFrames, alg.getMemAccess(), alg.getPageFaults(), alg.getDiskWrites());
+		if (alg.getPageShift() >= 0 && alg.getPageShift() != TraceReader.PAGE_OFFSET_BITS)
+			System.out.printf("Page size: %s\n", formatSize(1L << alg.getPageShift()));
+		System.out.print(alg.extraStats());
+	}
+
+	/**
+	 * Writes the JSON run report of the algorithm simulation to the --report file
+	 *
+	 * @param alg the algorithm that was simulated
+	 * @param a   the parsed options
+	 * @see RunMetrics#printJSON(PRA, String, PrintStream)
+	 */
+	private static void writeReport(PRA alg, Args a) {
+		try (PrintStream out = new PrintStream(new FileOutputStream(a.report))) {
+			alg.getMetrics().printJSON(alg, a.workload != null ? a.workload : a.traceFile, out);
+		} catch (IOException e) {
+			System.out.println("Error writing the run report!");
+			e.printStackTrace();
+			System.exit(1);
+		}
 	}
 
 	/**
@@ -81,7 +339,12 @@ public class VMSim {
 	 * signalling abnormal termination
 	 */
 	private static void showUsage() {
-		System.out.println("Usage:\tjava vmsim –n <numFrames> -a <OPT|LRU|Second> <traceFile>");
+		System.out.println("Usage:\tjava vmsim –n <numFrames> -a <OPT|LRU|Second|ARC|LIRS|ClockPro|WSClock|Aging|LFU|LRFU> [--tau <window>] [--aging-bits 8|16|32] [--tick <K>] [--lambda <0..1>] [--decay <N>] [--local fixed|proportional|pff] [--pff <T>] [--per-process] [--page-size <bytes>] [--huge always|never|<N>] [--tlb <entries,ways>] [--pages <N>] [--mmap] [--pipeline] [--external] [--report <file.json>] [--evict-log <file>] [--counters] <traceFile>");
+		System.out.println("\tjava vmsim –n <numFrames> -a <OPT|LRU|Second|ARC|LIRS|ClockPro|WSClock|Aging|LFU|LRFU> --generate <workload>");
+		System.out.println("\tjava vmsim convert [--delta] [--page-size <bytes>] <traceFile> <binaryTraceFile>");
+		System.out.println("\tjava vmsim generate [--binary|--delta] <workload> <traceFile>");
+		System.out.println("\tjava vmsim curve -n <maxFrames> -a <OPT|LRU> [--pages <N>] [--page-size <bytes>] [--mmap] <traceFile>");
+		System.out.println("\tjava vmsim sweep -n <frames,...> -a <alg,...> [-j threads] [--json] [--pages <N>] [--page-size <bytes>] [--mmap] <traceFile>...");
 		System.exit(1);
 	}
 
@@ -119,44 +382,334 @@ public class VMSim {
 		debugPrint(s, 0);
 	}
 
+	/**
+	 * The convert subcommand; converts a text trace file into the compact binary
+	 * trace format that every PRA can read in place of the text format.
+	 *
+	 * @param args the cmd line arguments following "convert"
+	 */
+	private static void convert(String[] args) {
+		boolean delta = false;
+		int pageShift = -1;
+		String in = null, out = null;
+
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--delta"))
+				delta = true;
+			else if (args[i].equals("--page-size") && i + 1 < args.length)
+				pageShift = pageShiftOf(args[++i]);
+			else if (in == null)
+				in = args[i];
+			else if (out == null)
+				out = args[i];
+			else
+				showUsage();
+		}
+
+		if (out == null)
+			showUsage();
+
+		try {
+			long count = TraceWriter.convert(in, out, delta, pageShift);
+			System.out.printf("Converted %d memory accesses from %s to %s\n", count, in, out);
+		} catch (IOException e) {
+			System.out.println("Error converting trace file!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The generate subcommand; writes a synthetic trace from a workload
+	 * description to a text or binary trace file.
+	 *
+	 * @param args the cmd line arguments following "generate"
+	 * @see TraceGenerator.java
+	 */
+	private static void generate(String[] args) {
+		boolean binary = false, delta = false;
+		String workload = null, out = null;
+
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("--binary"))
+				binary = true;
+			else if (args[i].equals("--delta"))
+				binary = delta = true;
+			else if (workload == null)
+				workload = args[i];
+			else if (out == null)
+				out = args[i];
+			else
+				showUsage();
+		}
+
+		if (out == null)
+			showUsage();
+
+		try {
+			TraceGenerator trace = new TraceGenerator(workload);
+			trace.dropPageIds(); 	// Only the page numbers are written
+			long count;
+			if (binary) {
+				try (TraceWriter writer = new TraceWriter(out, delta, TraceReader.PAGE_OFFSET_BITS)) {
+					count = trace.generate(writer);
+				}
+			} else {
+				try (OutputStream text = new FileOutputStream(out)) {
+					count = trace.generate(text);
+				}
+			}
+			System.out.printf("Generated %d memory accesses to %s\n", count, out);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			showUsage();
+		} catch (IOException e) {
+			System.out.println("Error writing trace file!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The curve subcommand; computes the page faults of an algorithm at every
+	 * number of frames from 1 to -n in one pass over the trace, and prints them as
+	 * a CSV of frames vs faults.
+	 *
+	 * @param args the cmd line arguments following "curve"
+	 */
+	private static void curve(String[] args) {
+
+		Args a = parseArgs(Arrays.copyOfRange(args, 1, args.length));
+
+		if (a.traceFile == null || a.algName == null || a.numFrames < 1
+				|| !(a.algName.equals("LRU") || a.algName.equals("OPT")))
+			showUsage(); // Only LRU and OPT are stack algorithms
+
+		int pages = a.pages > 0 ? a.pages : numPages;
+		if (a.algName.equals("OPT") && pages > DecodedTrace.MAX_PAGES) {
+			System.out.printf("The OPT curve packs page numbers into 30 bits, --pages must be at most %d\n",
+					DecodedTrace.MAX_PAGES);
+			showUsage();
+		}
+		try (TraceReader trace = TraceReader.open(a.traceFile, a.mmap)) {
+			trace.setPageLimit(pages);
+			if (a.pageShift >= 0)
+				trace.setPageShift(a.pageShift);
+
+			long[] faults;
+
+			if (a.algName.equals("LRU")) {
+				LRUCurve curve = new LRUCurve(a.numFrames, pages);
+				curve.run(trace);
+				faults = curve.getFaultCurve();
+			} else {
+				OPTCurve curve = new OPTCurve(a.numFrames, pages);
+				curve.run(DecodedTrace.read(trace), pages);
+				faults = curve.getFaultCurve();
+			}
+
+			StringBuilder csv = new StringBuilder("frames,faults\n");
+			for (int c = 1; c <= a.numFrames; c++)
+				csv.append(c).append(',').append(faults[c]).append('\n');
+			System.out.print(csv);
+
+		} catch (IOException e) {
+			System.out.println("Error computing the fault curve!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * The sweep subcommand; runs every algorithm at every number of frames on
+	 * every trace in parallel in this JVM, and prints one table of results.
+	 *
+	 * @param args the cmd line arguments following "sweep"
+	 */
+	private static void sweep(String[] args) {
+
+		List<String> algorithms = new ArrayList<>();
+		List<String> traces = new ArrayList<>();
+		int[] frames = null;
+		int threads = Runtime.getRuntime().availableProcessors();
+		int pageShift = -1;
+		int pages = numPages;
+		boolean json = false, mmap = false;
+
+		try {
+			for (int i = 1; i < args.length; i++) {
+				switch (args[i]) {
+				case "-n":
+					frames = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+					break;
+				case "-a":
+					for (String name : args[++i].toUpperCase().split(",")) {
+						if (!isSupported(name)) {
+							System.err.printf("Algorithm %s Not Supported:\n", name);
+							showUsage();
+						}
+						algorithms.add(name);
+					}
+					break;
+				case "-j":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--json":
+					json = true;
+					break;
+				case "--page-size":
+					pageShift = pageShiftOf(args[++i]);
+					break;
+				case "--pages":
+					pages = Integer.parseInt(args[++i]);
+					break;
+				case "--mmap":
+					mmap = true;
+					break;
+				default:
+					traces.add(args[i]);
+					break;
+				}
+			}
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			System.out.println("Error parsing arguments, types may be used incorrectly.");
+			showUsage();
+		}
+
+		if (frames == null || algorithms.isEmpty() || traces.isEmpty() || threads < 1 || pages < 1)
+			showUsage();
+		if (pages > DecodedTrace.MAX_PAGES) {
+			System.out.printf("Sweeps pack page numbers into 30 bits, --pages must be at most %d\n",
+					DecodedTrace.MAX_PAGES);
+			showUsage();
+		}
+
+		try {
+			Sweep sweep = new Sweep(algorithms, frames, traces, pages);
+			sweep.setPageShift(pageShift);
+			List<Sweep.Result> results = sweep.run(threads, mmap);
+			if (json)
+				Sweep.printJSON(results, System.out);
+			else
+				Sweep.printCSV(results, System.out);
+		} catch (IOException e) {
+			System.out.println("Error running the sweep!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Runs a simulation over a synthetic workload, generated as it is consumed
+	 *
+	 * @param alg the algorithm to simulate
+	 * @param a   the parsed options, holding the workload
+	 */
+	private static void simWorkload(PRA alg, Args a) {
+		TraceReader trace;
+		try {
+			trace = new TraceGenerator(a.workload);
+		} catch (IllegalArgumentException e) {
+			System.out.println(e.getMessage());
+			showUsage();
+			return;
+		}
+		alg.run(trace); // Limited to the Page Table like a trace file, and pipelined with --pipeline
+	}
+
 	public static void main(String[] args) {
 
-		// Init global vars to null value
-		traceFile = null;
-		numFrames = 0;
+		if (args.length > 0 && args[0].equals("convert")) {
+			convert(args);
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("generate")) {
+			generate(args);
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("curve")) {
+			curve(args);
+			return;
+		}
+
+		if (args.length > 0 && args[0].equals("sweep")) {
+			sweep(args);
+			return;
+		}
 
-		if (args.length != 5)
+		if (args.length < 5)
 			showUsage();
-		else
-			parseArgs(args);
 
-		PRA.setRAMframes(numFrames);	// Set the size of the Physical Memory
-		PRA.setPTsize(numPages); 		// Set the size of the Page Table
+		Args a = parseArgs(args);
 
-		switch (algName) { // Initalize the PRA to be the algorithm passed in from cmd line
-		case "OPT":
-			alg = new OPT();
-			break;
-		case "LRU":
-			alg = new LRU();
-			break;
-		case "SECOND":
-			alg = new SecondChance();
-			break;
+		if ((a.traceFile == null) == (a.workload == null) || a.algName == null)
+			showUsage(); // Exactly one of a trace file or a workload
+
+		// Initalize the PRA to be the algorithm passed in from cmd line, with the size of the
+		// Physical Memory and the Page Table
+		PRA alg = createAlgorithm(a);
+
+		alg.setMappedInput(a.mmap); 	// Set how the trace file is read
+		alg.setPipelined(a.pipeline);
+		alg.setProcessStats(a.perProcess);
+		alg.setPageShift(a.pageShift);
+		alg.getMetrics().setTimeVictims(a.report != null); // Only pay for timing victim selection when reporting
+
+		EventCounters counters = a.counters ? new EventCounters() : null;
+		EvictionLog log = null;
+		try {
+			if (a.evictLog != null)
+				log = new EvictionLog(a.evictLog);
+		} catch (IOException e) {
+			System.out.println("Error creating the eviction log!");
+			e.printStackTrace();
+			System.exit(1);
 		}
 
-		long start = System.nanoTime(); // TODO delete for performance testing
+		TLB tlb = null;
+		if (a.tlbEntries > 0) {
+			try {
+				tlb = new TLB(a.tlbEntries, a.tlbWays);
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				showUsage();
+			}
+		}
+		alg.setListener(SimulationListener.both(SimulationListener.both(log, counters), tlb));
+
+		if (a.workload == null)
+			alg.sim(a.traceFile); // Run the simulation over the trace file
+		else
+			simWorkload(alg, a);
+
+		printResults(alg, a.numFrames);
 
-		alg.sim(traceFile); // Run the simulation with the initialized BufferedReader
+		if (alg.getRadixTable() != null)
+			System.out.print(alg.getRadixTable());
 
-		long end = System.nanoTime(); // TODO delete for performance testing
+		if (alg.getProcessStats() != null)
+			alg.getProcessStats().printCSV(alg.getRadixTable(), System.out);
+
+		if (tlb != null)
+			System.out.print(tlb);
+
+		if (counters != null)
+			System.out.print(counters);
+
+		if (log != null) {
+			try {
+				log.close();
+			} catch (IOException e) {
+				System.out.println("Error writing the eviction log!");
+				e.printStackTrace();
+				System.exit(1);
+			}
+		}
 
-		printResults();
+		if (a.report != null)
+			writeReport(alg, a);
 
-		// TODO delete for performance testing
-//		System.out.println(String.format("\nTracefile = %s \nRuntime = %d ms\n", traceFile, TimeUnit.NANOSECONDS.toMillis(end - start)));
-//		System.out.println(String.format("%d\t%d\n", numFrames, alg.getPageFaults()));
-		
-		
 	} // End main
 } // End VMSim class
@@ -0,0 +1,177 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A class to represent the WSClock Page Replacement Algorithm,
+ * the clock based version of the Working Set algorithm. Time
+ * is virtual: the number of memory accesses made so far. The
+ * working set is the set of pages used within the last tau
+ * accesses, and only pages outside of it are eviction
+ * candidates.
+ *
+ * RAM is the ring of frames the clock hand sweeps over, as in
+ * SecondChance. Each frame has a reference bit, set on every
+ * access, and the virtual time of its last use as seen by the
+ * hand. At each frame the hand:
+ *
+ *   - clears a set reference bit and stamps the frame with
+ *     the current virtual time; the page is in the working set
+ *   - evicts an unreferenced page older than tau if it is
+ *     clean
+ *   - schedules a dirty page older than tau for write back and
+ *     moves on; the write completes at once, so the page is
+ *     clean when the hand comes back around
+ *
+ * If a whole sweep finds no candidate and schedules no write,
+ * every page is in the working set, and the first clean page,
+ * or the page at the hand if none is clean, is evicted.
+ *
+ * The average working set size over the run is measured
+ * exactly: every page access adds the time the page spent in
+ * the window since its previous access.
+ *
+ * @see SecondChance.java
+ * @author Steven Montalbano
+ */
+public class WSClock extends PRA {
+
+	private final long[] refBits; 	// The reference bit of each frame of RAM, packed 64 frames to a word
+	private final long[] lastUse; 	// The virtual time of each frame's last use, as seen by the clock hand
+	private final long[] lastAccess; // The virtual time of each page's last access, or -1, for the working set size
+	private long tau; 				// The working set window in memory accesses
+	private long windowSum; 		// The working set size summed over every point in virtual time
+	private int hand; 				// The clock hand position
+
+	/**
+	 * @param frames the number of Physical Memory frames in RAM
+	 * @param pages  the size of the whole Page Table
+	 */
+	public WSClock(int frames, int pages) {
+		super(frames, pages);
+		this.name = "WSCLOCK";
+		this.refBits = new long[(RAMframes + 63) >>> 6];
+		this.lastUse = new long[RAMframes];
+		this.lastAccess = new long[PTpages];
+		this.tau = RAMframes; // The default window
+		Arrays.fill(lastAccess, -1);
+	}
+
+	/**
+	 * Sets the working set window
+	 *
+	 * @param tau the window in memory accesses
+	 */
+	public void setWindow(long tau) {
+		this.tau = tau;
+	}
+
+	@Override
+	public void sim(TraceReader trace) throws IOException {
+
+		int index; 	// The index into the Page Table for the cur memory instruction
+
+		metrics.phase(RunMetrics.SIMULATE); // The trace is decoded as it is simulated
+
+		while (trace.next()) {
+
+			index = trace.page(); 	// The index into the Page Table, the offset does not apply to this simulation.
+
+			long last = lastAccess[index]; // The page's time in the window since its previous access
+			if (last >= 0)
+				windowSum += Math.min(memAccess - last, tau);
+			lastAccess[index] = memAccess;
+
+			if (trace.isStore())
+				markDirty(index);
+
+			if (isResident(index)) { 	// Page hit
+				hit(index);
+				int frame = frameOf(index);
+				refBits[frame >>> 6] |= 1L << frame;
+
+			} else { 	// Page Fault
+				fault(index);
+
+				int frame;
+				if (RAMhasRoom()) {
+					frame = usedFrames++;
+				} else {
+					long start = metrics.victimStart();
+					frame = sweep();
+					metrics.victimChosen(start);
+					evict(frame); 	// Only dirty when every page was in the working set
+				}
+
+				load(index, frame);
+				refBits[frame >>> 6] &= ~(1L << frame);
+				lastUse[frame] = memAccess;
+			}
+
+			memAccess++; // Increment total memory accesses on every loop iteration
+		} // End while
+
+		for (long last : lastAccess) 	// The time the last access of each page spent in the window
+			if (last >= 0)
+				windowSum += Math.min(memAccess - last, tau);
+
+		metrics.finish();
+
+	} // End sim
+
+	/**
+	 * Helper function that advances the clock hand to the victim's frame,
+	 * scheduling the write back of old dirty pages along the way. RAM must be
+	 * full.
+	 *
+	 * @return the frame of the victim, with the hand moved past it
+	 */
+	private int sweep() {
+
+		boolean scheduled = false; 	// Was a write back scheduled in this sweep?
+		int firstClean = EMPTY; 	// The first clean page passed, in case every page is in the working set
+
+		for (int n = 0; ; n++) {
+
+			if (n == RAMframes && !scheduled) { 	// A full sweep; every page is in the working set
+				int victim = firstClean != EMPTY ? firstClean : hand;
+				hand = victim + 1 == RAMframes ? 0 : victim + 1;
+				return victim;
+			}
+
+			int frame = hand;
+			hand = frame + 1 == RAMframes ? 0 : frame + 1;
+			long bit = 1L << frame;
+
+			if ((refBits[frame >>> 6] & bit) != 0) { 	// Used since the hand last passed; in the working set
+				refBits[frame >>> 6] &= ~bit;
+				lastUse[frame] = memAccess;
+				continue;
+			}
+
+			boolean dirty = PTE.isDirty(pageTable[RAM[frame]]);
+
+			if (memAccess - lastUse[frame] > tau) { 	// Outside the working set
+				if (!dirty)
+					return frame;
+				writeBack(frame); 	// Schedule the write; the page is clean the next time around
+				scheduled = true;
+			} else if (!dirty && firstClean == EMPTY) {
+				firstClean = frame;
+			}
+		}
+	}
+
+	/**
+	 * @return the average number of distinct pages accessed within the last tau
+	 *         accesses, over every point in virtual time
+	 */
+	public double getAverageWorkingSet() {
+		return memAccess == 0 ? 0 : (double) windowSum / memAccess;
+	}
+
+	@Override
+	public String extraStats() {
+		return String.format("Working set window: %d\nAverage working set size: %.2f\n", tau,
+				getAverageWorkingSet());
+	}
+}
@@ -0,0 +1,151 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.function.LongSupplier;
+
+/**
+ * The bridge between the JMH benchmarks and the simulator. JMH requires
+ * benchmark classes to be in a named package, and classes in a named package
+ * can not refer to the simulator's classes in the default package, so the
+ * benchmarks look these factory methods up reflectively once per trial and
+ * get back plain JDK functional interfaces. The measured code paths make no
+ * reflective calls.
+ *
+ * @author Steven Montalbano
+ */
+public final class BenchTargets {
+
+	private BenchTargets() {
+	}
+
+	/**
+	 * Generates a text trace with realistic locality: most accesses go to a
+	 * Zipfian hot set, some scan sequentially through larger regions, and the
+	 * rest are scattered over the whole working set. A quarter are stores.
+	 *
+	 * @param seed     the random seed, so every trial sees the same trace
+	 * @param accesses the number of memory accesses
+	 * @param pages    the number of distinct pages in the working set
+	 * @return the trace file contents
+	 * @see TraceGenerator.java
+	 */
+	public static byte[] generateText(long seed, int accesses, int pages) throws IOException {
+		String workload = String.format("zipf:70:%d:0.99,scan:20:%d,uniform:10:%d,count=%d,seed=%d", pages / 64,
+				pages / 4, pages, accesses, seed);
+		ByteArrayOutputStream out = new ByteArrayOutputStream(accesses * 13);
+		new TraceGenerator(workload).generate(out);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes a trace to a temporary file, deleted when the JVM exits
+	 *
+	 * @param text   the text trace contents
+	 * @param binary true to convert the trace to the binary format
+	 * @param delta  true to delta/varint encode the binary records
+	 * @return the path of the file
+	 */
+	public static String writeTemp(byte[] text, boolean binary, boolean delta) throws IOException {
+		File textFile = File.createTempFile("vmsim-bench", ".trace");
+		textFile.deleteOnExit();
+		Files.write(textFile.toPath(), text);
+		if (!binary)
+			return textFile.getPath();
+
+		File binaryFile = File.createTempFile("vmsim-bench", ".vmt");
+		binaryFile.deleteOnExit();
+		TraceWriter.convert(textFile.getPath(), binaryFile.getPath(), delta);
+		return binaryFile.getPath();
+	}
+
+	/**
+	 * @param text the text trace contents
+	 * @return the trace decoded into memory, as a DecodedTrace
+	 */
+	public static Object decode(byte[] text) throws IOException {
+		try (TraceReader trace = new TraceReader(new ByteArrayInputStream(text)) {
+		}) {
+			return DecodedTrace.read(trace);
+		}
+	}
+
+	/**
+	 * @param text the text trace contents
+	 * @return an operation that decodes every memory access of the trace from
+	 *         memory and returns the sum of the page numbers
+	 */
+	public static LongSupplier textDecoder(byte[] text) {
+		return () -> {
+			try (TraceReader trace = new TraceReader(new ByteArrayInputStream(text)) {
+			}) {
+				return drain(trace);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * @param file   the path of a text or binary trace file
+	 * @param mapped true to memory map the file
+	 * @return an operation that decodes every memory access of the file and
+	 *         returns the sum of the page numbers
+	 */
+	public static LongSupplier fileDecoder(String file, boolean mapped) {
+		return () -> {
+			try (TraceReader trace = TraceReader.open(file, mapped)) {
+				return drain(trace);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		};
+	}
+
+	/**
+	 * @param alg    the algorithm name, as accepted by -a
+	 * @param frames the number of frames of RAM
+	 * @param trace  a DecodedTrace from decode()
+	 * @return an operation that simulates the whole trace with a new instance of
+	 *         the algorithm and returns its page faults
+	 */
+	public static LongSupplier simulation(String alg, int frames, Object trace) {
+		DecodedTrace decoded = (DecodedTrace) trace;
+		return () -> {
+			PRA pra = VMSim.createAlgorithm(alg, frames, TraceReader.DEFAULT_PAGES);
+			try {
+				pra.sim(decoded.reader());
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return pra.getPageFaults();
+		};
+	}
+
+	/**
+	 * @param trace a DecodedTrace from decode()
+	 * @return an operation that runs OPT's backward next-use pass over the trace
+	 *         without caching and returns the next use of the first access
+	 */
+	public static LongSupplier nextUse(Object trace) {
+		DecodedTrace decoded = (DecodedTrace) trace;
+		return () -> decoded.computeNextUse(TraceReader.DEFAULT_PAGES)[0];
+	}
+
+	/**
+	 * @param trace the trace to decode, PRA.sim style
+	 * @return the number of memory accesses in the trace
+	 */
+	public static int length(Object trace) {
+		return ((DecodedTrace) trace).length();
+	}
+
+	private static long drain(TraceReader trace) throws IOException {
+		long sum = 0;
+		while (trace.next())
+			sum += trace.page() + (trace.isStore() ? 1 : 0);
+		return sum;
+	}
+}
@@ -0,0 +1,43 @@
+package vmsim.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * OPT preprocessing throughput: the backward pass that computes the next use
+ * of every memory access, in memory accesses per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OPTPreprocessBenchmark {
+
+	private LongSupplier nextUse;
+
+	@Setup
+	public void setup() throws Exception {
+		Object trace = Targets.call("decode", (Object) Targets.text());
+		nextUse = Targets.call("nextUse", trace);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Targets.ACCESSES)
+	public long preprocess() {
+		return nextUse.getAsLong();
+	}
+}
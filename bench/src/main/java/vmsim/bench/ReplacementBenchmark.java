@@ -0,0 +1,53 @@
+package vmsim.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-access cost of each replacement algorithm, in memory accesses simulated
+ * per second, at several frame counts. The trace is decoded into memory once
+ * in setup, so only the replacement logic is measured. OPT's next-use array is
+ * cached by the decoded trace after the first run, so its preprocessing is
+ * measured separately by OPTPreprocessBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReplacementBenchmark {
+
+	@Param({ "LRU", "OPT", "SECOND", "ARC", "LIRS", "CLOCKPRO", "WSCLOCK", "AGING", "LFU", "LRFU" })
+	public String algorithm;
+
+	@Param({ "64", "1024", "16384" })
+	public int frames;
+
+	private LongSupplier simulation;
+
+	@Setup
+	public void setup() throws Exception {
+		Object trace = Targets.call("decode", (Object) Targets.text());
+		simulation = Targets.call("simulation", algorithm, frames, trace);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Targets.ACCESSES)
+	public long simulate() {
+		return simulation.getAsLong();
+	}
+}
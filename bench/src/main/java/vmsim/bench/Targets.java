@@ -0,0 +1,41 @@
+package vmsim.bench;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Looks up the factory methods of the default package BenchTargets class.
+ * Benchmarks call this only from their setup methods; the operations handed
+ * back are plain functional interfaces with no reflection on the measured
+ * path.
+ */
+final class Targets {
+
+	static final int ACCESSES = 1 << 20; 	// The number of memory accesses in each generated trace
+	static final int WORKING_SET = 1 << 16; // The number of distinct pages in each generated trace
+	static final long SEED = 1550; 			// The seed of every generated trace
+
+	private Targets() {
+	}
+
+	@SuppressWarnings("unchecked")
+	static <T> T call(String method, Object... args) throws Exception {
+		for (Method m : Class.forName("BenchTargets").getMethods()) {
+			if (m.getName().equals(method) && m.getParameterCount() == args.length) {
+				try {
+					return (T) m.invoke(null, args);
+				} catch (InvocationTargetException e) {
+					throw (Exception) e.getCause();
+				}
+			}
+		}
+		throw new NoSuchMethodException("BenchTargets." + method);
+	}
+
+	/**
+	 * @return the generated text trace every benchmark runs on
+	 */
+	static byte[] text() throws Exception {
+		return call("generateText", SEED, ACCESSES, WORKING_SET);
+	}
+}
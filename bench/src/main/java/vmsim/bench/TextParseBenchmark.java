@@ -0,0 +1,43 @@
+package vmsim.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Text trace parsing throughput, in memory accesses decoded per second, from a
+ * byte array with no I/O at all; the baseline for the file formats of
+ * TraceDecodeBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextParseBenchmark {
+
+	private LongSupplier decoder;
+
+	@Setup
+	public void setup() throws Exception {
+		decoder = Targets.call("textDecoder", (Object) Targets.text());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Targets.ACCESSES)
+	public long decode() {
+		return decoder.getAsLong();
+	}
+}
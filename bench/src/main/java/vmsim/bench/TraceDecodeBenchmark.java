@@ -0,0 +1,52 @@
+package vmsim.bench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Trace decoding throughput, in memory accesses decoded per second, for each
+ * trace format and input mode. The file stays in the page cache.
+ *
+ * @see TextParseBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraceDecodeBenchmark {
+
+	@Param({ "text", "binary", "delta" })
+	public String format;
+
+	@Param({ "false", "true" })
+	public boolean mapped;
+
+	private LongSupplier decoder;
+
+	@Setup
+	public void setup() throws Exception {
+		decoder = Targets.call("fileDecoder",
+				Targets.call("writeTemp", Targets.text(), !format.equals("text"), format.equals("delta")), mapped);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(Targets.ACCESSES)
+	public long decode() {
+		return decoder.getAsLong();
+	}
+}
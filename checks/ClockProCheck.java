@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks CLOCK-Pro against a brute force model of the same policy on synthetic
+ * workloads. The model keeps the clock as a plain list of page objects, with
+ * the hands pointing at the objects themselves, and finds a page or its
+ * neighbor on the clock by scanning the list, so it shares none of ClockPro's
+ * index arrays, slot pools or packed reference bits. The page faults and
+ * writes to disk of the two must match for every workload and memory size.
+ *
+ * Lives in checks/, outside the simulator sources, and is compiled and run
+ * by tests.sh. Prints one line per run to standard output, and the first
+ * mismatch to standard error before exiting with status 1.
+ *
+ * @see ClockPro.java
+ * @author Steven Montalbano
+ */
+public class ClockProCheck {
+
+	private static final String[] WORKLOADS = { 	// Reuse distances on both sides of the hot set's
+			"zipf:60:512:0.8,loop:20:300,uniform:20:5000,count=30k,seed=5",
+			"loop:70:150,zipf:30:2000:1.1,stores=0.4,phase=7k,count=30k,seed=17",
+			"scan:30:1000,zipf:70:256:0.7,stores=0.2,count=30k,seed=41" };
+	private static final int[] FRAMES = { 1, 4, 37, 100, 256 };
+
+	public static void main(String[] args) throws IOException {
+		for (String workload : WORKLOADS) {
+			for (int frames : FRAMES) {
+				ClockPro alg = new ClockPro(frames, TraceReader.DEFAULT_PAGES);
+				alg.sim(new TraceGenerator(workload));
+				long[] expected = new Model(frames).run(new TraceGenerator(workload));
+				long[] actual = { alg.getPageFaults(), alg.getDiskWrites() };
+
+				if (!Arrays.equals(expected, actual)) {
+					System.err.printf("MISMATCH %s -n %d: faults %d, writes %d; expected faults %d, writes %d\n",
+							workload, frames, actual[0], actual[1], expected[0], expected[1]);
+					System.exit(1);
+				}
+				System.out.printf("ok %s -n %d: faults %d, writes %d\n", workload, frames, actual[0], actual[1]);
+			}
+		}
+	}
+
+	/**
+	 * A page on the clock
+	 */
+	private static class Page {
+		final long vpn;
+		boolean resident, hot, test, referenced;
+
+		Page(long vpn) {
+			this.vpn = vpn;
+		}
+	}
+
+	/**
+	 * CLOCK-Pro by brute force
+	 */
+	private static class Model {
+
+		final int frames;
+		final List<Page> clock = new ArrayList<>(); // The clock in order, wrapping around
+		final Set<Long> dirty = new HashSet<>();
+		Page handHot, handCold, handTest; 	// null while the clock is empty
+		int residents, ghosts, hotCount, coldTarget;
+		long faults, writes;
+
+		Model(int frames) {
+			this.frames = frames;
+			this.coldTarget = Math.max(1, frames / 100);
+		}
+
+		long[] run(TraceReader trace) throws IOException {
+			while (trace.next()) {
+				long vpn = trace.vpn();
+				if (trace.isStore())
+					dirty.add(vpn);
+
+				Page page = find(vpn);
+				if (page != null && page.resident) {
+					page.referenced = true;
+					continue;
+				}
+
+				faults++;
+				if (residents == frames)
+					runHandCold();
+
+				Page ghost = find(vpn); 	// Looked up again, the eviction may have ended its test period
+				Page loaded = new Page(vpn);
+				loaded.resident = true;
+				residents++;
+				if (ghost != null) { 	// Reused in its test period, the page comes back hot
+					forget(ghost);
+					coldTarget = Math.min(frames, coldTarget + 1);
+					loaded.hot = true;
+					hotCount++;
+					insertHead(loaded);
+					while (hotCount > frames - coldTarget)
+						runHandHot();
+				} else {
+					loaded.test = true;
+					insertHead(loaded);
+				}
+			}
+			return new long[] { faults, writes };
+		}
+
+		void runHandCold() {
+			while (true) {
+				Page page = handCold;
+				if (!page.resident || page.hot) {
+					handCold = after(page);
+					continue;
+				}
+
+				if (page.referenced) {
+					page.referenced = false;
+					unlink(page);
+					if (page.test) {
+						page.test = false;
+						page.hot = true;
+						hotCount++;
+						coldTarget = Math.min(frames, coldTarget + 1);
+						insertHead(page);
+						while (hotCount > frames - coldTarget)
+							runHandHot();
+					} else {
+						page.test = true;
+						insertHead(page);
+					}
+					continue;
+				}
+
+				handCold = after(page); 	// The victim
+				boolean test = page.test;
+				page.test = false;
+				if (dirty.remove(page.vpn))
+					writes++;
+
+				if (test) { 	// It stays on the clock, non-resident, until its test period ends
+					if (ghosts == frames)
+						runHandTest();
+					page.resident = false;
+					page.test = true;
+					ghosts++;
+				} else {
+					unlink(page);
+				}
+				residents--;
+				return;
+			}
+		}
+
+		void runHandHot() {
+			while (true) {
+				Page page = handHot;
+				Page next = after(page);
+
+				if (page.hot) {
+					handHot = next;
+					if (page.referenced) {
+						page.referenced = false;
+						continue;
+					}
+					page.hot = false;
+					hotCount--;
+					return;
+				}
+
+				if (page.test)
+					endTest(page);
+				handHot = next;
+			}
+		}
+
+		void runHandTest() {
+			while (true) {
+				Page page = handTest;
+				Page next = after(page);
+				boolean ghost = !page.resident;
+
+				if (page.test)
+					endTest(page);
+				handTest = next;
+
+				if (ghost)
+					return;
+			}
+		}
+
+		void endTest(Page page) {
+			coldTarget = Math.max(1, coldTarget - 1);
+			if (page.resident)
+				page.test = false;
+			else
+				forget(page);
+		}
+
+		void forget(Page ghost) {
+			unlink(ghost);
+			ghosts--;
+		}
+
+		Page find(long vpn) {
+			for (Page page : clock)
+				if (page.vpn == vpn)
+					return page;
+			return null;
+		}
+
+		Page after(Page page) {
+			return clock.get((clock.indexOf(page) + 1) % clock.size());
+		}
+
+		void insertHead(Page page) {
+			if (handHot == null) {
+				clock.add(page);
+				handHot = handCold = handTest = page;
+				return;
+			}
+			clock.add(clock.indexOf(handHot), page); 	// Just behind HAND_hot
+		}
+
+		void unlink(Page page) {
+			if (clock.size() == 1) {
+				clock.clear();
+				handHot = handCold = handTest = null;
+				return;
+			}
+			Page next = after(page);
+			clock.remove(page);
+			if (handHot == page)
+				handHot = next;
+			if (handCold == page)
+				handCold = next;
+			if (handTest == page)
+				handTest = next;
+		}
+	}
+}
@@ -0,0 +1,119 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks HugePageLRU against a brute force model of the same policy on
+ * synthetic workloads. The model keeps the resident units, base pages and
+ * huge pages alike, in one access ordered LinkedHashMap and finds a region's
+ * resident base pages by scanning every unit, so it shares none of
+ * HugePageLRU's index structures. The page faults, writes to disk and huge
+ * page write-backs of the two must match for every workload, memory size and
+ * promotion threshold.
+ *
+ * Lives in checks/, outside the simulator sources, and is compiled and run
+ * by tests.sh. Prints one line per run to standard output, and the first
+ * mismatch to standard error before exiting with status 1.
+ *
+ * @see HugePageLRU.java
+ * @author Steven Montalbano
+ */
+public class HugePageCheck {
+
+	private static final String[] WORKLOADS = { 	// Spread over many 2 MB regions, with phases to move them around
+			"zipf:60:8192:0.9,uniform:30:65536,scan:10:4096,count=40k,seed=3",
+			"loop:50:3000,uniform:50:20000,stores=0.5,phase=8k,count=40k,seed=11",
+			"zipf:80:2048:1.2,scan:20:65536,stores=0.1,phase=10k,count=40k,seed=29" };
+	private static final int[] FRAMES = { 512, 600, 2048, 5000 }; // RAM must hold a huge page
+	private static final int[] PROMOTE = { HugePageLRU.NEVER, 1, 64, 512 };
+
+	public static void main(String[] args) throws IOException {
+		for (String workload : WORKLOADS) {
+			for (int frames : FRAMES) {
+				for (int promote : PROMOTE) {
+					HugePageLRU alg = new HugePageLRU(frames, TraceReader.DEFAULT_PAGES, promote);
+					alg.sim(new TraceGenerator(workload));
+					long[] expected = reference(new TraceGenerator(workload), frames, promote);
+					long[] actual = { alg.getPageFaults(), alg.getDiskWrites(), alg.getHugeWrites() };
+
+					if (!Arrays.equals(expected, actual)) {
+						System.err.printf("MISMATCH %s -n %d --huge %d: faults %d, writes %d, huge writes %d; "
+								+ "expected faults %d, writes %d, huge writes %d\n", workload, frames, promote, actual[0],
+								actual[1], actual[2], expected[0], expected[1], expected[2]);
+						System.exit(1);
+					}
+					System.out.printf("ok %s -n %d --huge %d: faults %d, writes %d, huge writes %d\n", workload, frames,
+							promote, actual[0], actual[1], actual[2]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Simulates LRU over base and huge pages by brute force
+	 *
+	 * @param trace   the memory accesses
+	 * @param frames  the number of base page frames of RAM
+	 * @param promote the promotion threshold, or HugePageLRU.NEVER
+	 * @return the page faults, writes to disk and huge page write-backs
+	 */
+	private static long[] reference(TraceReader trace, int frames, int promote) throws IOException {
+		int order = HugePageLRU.HUGE_SHIFT - trace.pageShift();
+		int perHuge = 1 << order;
+		Map<Long, Boolean> units = new LinkedHashMap<>(16, 0.75f, true); // Unit -> dirty, least recently used first;
+																		// base page vpn << 1, huge page region << 1 | 1
+		long faults = 0, writes = 0, hugeWrites = 0;
+		int used = 0;
+
+		while (trace.next()) {
+			long vpn = trace.vpn(), region = vpn >>> order;
+			boolean store = trace.isStore();
+			Long huge = region << 1 | 1, base = vpn << 1;
+
+			if (units.containsKey(huge)) {
+				units.put(huge, units.get(huge) | store);
+				continue;
+			}
+			if (units.containsKey(base)) {
+				units.put(base, units.get(base) | store);
+				continue;
+			}
+			faults++;
+
+			List<Long> resident = new ArrayList<>(); 	// The region's resident base pages
+			for (long unit : units.keySet())
+				if ((unit & 1) == 0 && (unit >>> 1) >>> order == region)
+					resident.add(unit);
+
+			Long unit = base;
+			int size = 1;
+			if (promote != HugePageLRU.NEVER && resident.size() + 1 >= promote) { 	// Collapse into a huge page
+				for (long page : resident) {
+					store |= units.remove(page);
+					used--;
+				}
+				unit = huge;
+				size = perHuge;
+			}
+
+			for (Iterator<Map.Entry<Long, Boolean>> lru = units.entrySet().iterator(); used + size > frames;) {
+				Map.Entry<Long, Boolean> victim = lru.next();
+				boolean isHuge = (victim.getKey() & 1) == 1;
+				used -= isHuge ? perHuge : 1;
+				if (victim.getValue()) {
+					writes++;
+					if (isHuge)
+						hugeWrites++;
+				}
+				lru.remove();
+			}
+			units.put(unit, store);
+			used += size;
+		}
+		return new long[] { faults, writes, hugeWrites };
+	}
+}
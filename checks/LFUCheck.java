@@ -0,0 +1,110 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks LFU against a brute force model of the same policy on synthetic
+ * workloads. The model keeps the count of every resident page and a stamp of
+ * when it last moved, and scans every page for the smallest count and oldest
+ * stamp on a fault, so it shares none of LFU's frequency buckets. A decay
+ * halves every count, rounding up, and restamps the pages in their old order,
+ * the way merged buckets keep it. The page faults and writes to disk of the
+ * two must match for every workload, memory size and decay interval.
+ *
+ * Lives in checks/, outside the simulator sources, and is compiled and run
+ * by tests.sh. Prints one line per run to standard output, and the first
+ * mismatch to standard error before exiting with status 1.
+ *
+ * @see LFU.java
+ * @author Steven Montalbano
+ */
+public class LFUCheck {
+
+	private static final String[] WORKLOADS = { 	// Hot sets that move, so counts go stale
+			"zipf:60:512:0.8,loop:20:300,uniform:20:5000,count=30k,seed=5",
+			"loop:70:150,zipf:30:2000:1.1,stores=0.4,phase=7k,count=30k,seed=17",
+			"scan:30:1000,zipf:70:256:0.7,stores=0.2,phase=5k,count=30k,seed=41" };
+	private static final int[] FRAMES = { 1, 4, 37, 100, 256 };
+	private static final long[] DECAY = { 0, 97, 5000 };
+
+	public static void main(String[] args) throws IOException {
+		for (String workload : WORKLOADS) {
+			for (int frames : FRAMES) {
+				for (long decay : DECAY) {
+					LFU alg = new LFU(frames, TraceReader.DEFAULT_PAGES);
+					alg.setDecay(decay);
+					alg.sim(new TraceGenerator(workload));
+					long[] expected = reference(new TraceGenerator(workload), frames, decay);
+					long[] actual = { alg.getPageFaults(), alg.getDiskWrites() };
+
+					if (!Arrays.equals(expected, actual)) {
+						System.err.printf("MISMATCH %s -n %d --decay %d: faults %d, writes %d; "
+								+ "expected faults %d, writes %d\n", workload, frames, decay, actual[0], actual[1],
+								expected[0], expected[1]);
+						System.exit(1);
+					}
+					System.out.printf("ok %s -n %d --decay %d: faults %d, writes %d\n", workload, frames, decay,
+							actual[0], actual[1]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Simulates LFU by brute force
+	 *
+	 * @param trace  the memory accesses
+	 * @param frames the number of frames of RAM
+	 * @param decay  the number of memory accesses between count halvings, or 0
+	 * @return the page faults and writes to disk
+	 */
+	private static long[] reference(TraceReader trace, int frames, long decay) throws IOException {
+		Map<Long, long[]> resident = new HashMap<>(); 	// Page -> { count, stamp }
+		Set<Long> dirty = new HashSet<>();
+		long faults = 0, writes = 0, clock = 0, accesses = 0;
+
+		while (trace.next()) {
+			long page = trace.vpn();
+			if (trace.isStore())
+				dirty.add(page);
+
+			long[] state = resident.get(page);
+			if (state != null) {
+				state[0]++;
+				state[1] = ++clock;
+			} else {
+				faults++;
+				if (resident.size() == frames) {
+					long victim = 0;
+					long[] min = null;
+					for (Map.Entry<Long, long[]> e : resident.entrySet()) {
+						long[] s = e.getValue();
+						if (min == null || s[0] < min[0] || (s[0] == min[0] && s[1] < min[1])) {
+							victim = e.getKey();
+							min = s;
+						}
+					}
+					resident.remove(victim);
+					if (dirty.remove(victim))
+						writes++;
+				}
+				resident.put(page, new long[] { 1, ++clock });
+			}
+
+			if (decay > 0 && ++accesses % decay == 0) { 	// Halve every count, keeping the pages in order
+				List<long[]> order = new ArrayList<>(resident.values());
+				order.sort((a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+				for (long[] s : order) {
+					s[0] = (s[0] + 1) >>> 1;
+					s[1] = ++clock;
+				}
+			}
+		}
+		return new long[] { faults, writes };
+	}
+}
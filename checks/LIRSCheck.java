@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Checks LIRS against a brute force model of the same policy on synthetic
+ * workloads. The model keeps the recency stack S, the resident HIR queue Q and
+ * the non-resident pages of S as insertion ordered sets of page numbers,
+ * oldest first, with the same bound of one non-resident page per frame, so it
+ * shares none of LIRS's index lists or ghost slots. The page faults and writes
+ * to disk of the two must match for every workload and memory size.
+ *
+ * Lives in checks/, outside the simulator sources, and is compiled and run
+ * by tests.sh. Prints one line per run to standard output, and the first
+ * mismatch to standard error before exiting with status 1.
+ *
+ * @see LIRS.java
+ * @author Steven Montalbano
+ */
+public class LIRSCheck {
+
+	private static final String[] WORKLOADS = { 	// Reuse distances on both sides of the LIR set's
+			"zipf:60:512:0.8,loop:20:300,uniform:20:5000,count=30k,seed=5",
+			"loop:70:150,zipf:30:2000:1.1,stores=0.4,phase=7k,count=30k,seed=17",
+			"scan:30:1000,zipf:70:256:0.7,stores=0.2,count=30k,seed=41" };
+	private static final int[] FRAMES = { 1, 4, 37, 100, 256 };
+
+	public static void main(String[] args) throws IOException {
+		for (String workload : WORKLOADS) {
+			for (int frames : FRAMES) {
+				LIRS alg = new LIRS(frames, TraceReader.DEFAULT_PAGES);
+				alg.sim(new TraceGenerator(workload));
+				long[] expected = reference(new TraceGenerator(workload), frames);
+				long[] actual = { alg.getPageFaults(), alg.getDiskWrites() };
+
+				if (!Arrays.equals(expected, actual)) {
+					System.err.printf("MISMATCH %s -n %d: faults %d, writes %d; expected faults %d, writes %d\n",
+							workload, frames, actual[0], actual[1], expected[0], expected[1]);
+					System.exit(1);
+				}
+				System.out.printf("ok %s -n %d: faults %d, writes %d\n", workload, frames, actual[0], actual[1]);
+			}
+		}
+	}
+
+	/**
+	 * Simulates LIRS by brute force
+	 *
+	 * @param trace  the memory accesses
+	 * @param frames the number of frames of RAM
+	 * @return the page faults and writes to disk
+	 */
+	private static long[] reference(TraceReader trace, int frames) throws IOException {
+		int maxLIR = frames - Math.max(1, frames / 100);
+		Set<Long> stack = new LinkedHashSet<>(); 	// S, the bottom first
+		Set<Long> queue = new LinkedHashSet<>(); 	// Q, the oldest first
+		Set<Long> gone = new LinkedHashSet<>(); 	// The non-resident pages of S, the earliest to go first
+		Set<Long> lir = new HashSet<>(), resident = new HashSet<>(), dirty = new HashSet<>();
+		long faults = 0, writes = 0;
+
+		while (trace.next()) {
+			long page = trace.vpn();
+			if (trace.isStore())
+				dirty.add(page);
+
+			if (resident.contains(page)) {
+				if (lir.contains(page)) {
+					toTop(stack, page);
+					prune(stack, gone, lir);
+				} else if (stack.contains(page)) { 	// A resident HIR page reused while in S
+					queue.remove(page);
+					toTop(stack, page);
+					promote(page, stack, queue, gone, lir, maxLIR);
+				} else {
+					stack.add(page);
+					toTop(queue, page);
+				}
+				continue;
+			}
+
+			faults++;
+			if (resident.size() >= frames) { 	// Evict the oldest resident HIR page
+				long victim = queue.iterator().next();
+				queue.remove(victim);
+				resident.remove(victim);
+				if (dirty.remove(victim))
+					writes++;
+				if (stack.contains(victim)) {
+					if (gone.size() == frames) { 	// Forget the page that went non-resident earliest
+						long oldest = gone.iterator().next();
+						gone.remove(oldest);
+						stack.remove(oldest);
+					}
+					gone.add(victim);
+				}
+			}
+
+			resident.add(page);
+			if (gone.remove(page)) { 	// A non-resident HIR page reused while in S
+				toTop(stack, page);
+				promote(page, stack, queue, gone, lir, maxLIR);
+			} else if (lir.size() < maxLIR) {
+				lir.add(page);
+				stack.add(page);
+			} else {
+				stack.add(page);
+				queue.add(page);
+			}
+		}
+		return new long[] { faults, writes };
+	}
+
+	private static void toTop(Set<Long> list, long page) {
+		list.remove(page);
+		list.add(page);
+	}
+
+	/**
+	 * Drops the HIR pages at the bottom of S, so its bottom is a LIR page
+	 */
+	private static void prune(Set<Long> stack, Set<Long> gone, Set<Long> lir) {
+		while (!stack.isEmpty()) {
+			long bottom = stack.iterator().next();
+			if (lir.contains(bottom))
+				break;
+			stack.remove(bottom);
+			gone.remove(bottom);
+		}
+	}
+
+	/**
+	 * Makes a page LIR, demoting the bottom LIR page to Q if there are too many
+	 */
+	private static void promote(long page, Set<Long> stack, Set<Long> queue, Set<Long> gone, Set<Long> lir,
+			int maxLIR) {
+		lir.add(page);
+		prune(stack, gone, lir);
+		if (lir.size() > maxLIR) {
+			long bottom = stack.iterator().next();
+			stack.remove(bottom);
+			lir.remove(bottom);
+			queue.add(bottom);
+			prune(stack, gone, lir);
+		}
+	}
+}
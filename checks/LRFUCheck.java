@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Checks LRFU against a brute force model of the same policy on synthetic
+ * workloads. The model decays the CRF of every resident page by 2^(-λ) at
+ * every memory access, adds 1 for each access, halves every CRF at a decay, and
+ * scans every page for the smallest CRF on a fault, so it shares none of
+ * LRFU's heap or its keys. The page faults and writes to disk of the two must
+ * match for every workload, memory size, λ and decay interval. At λ = 1 LRFU
+ * must fault exactly like LRU.
+ *
+ * λ = 0 is left out, since every CRF is then a whole count and the victim
+ * among equal counts is up to the heap.
+ *
+ * Lives in checks/, outside the simulator sources, and is compiled and run
+ * by tests.sh. Prints one line per run to standard output, and the first
+ * mismatch to standard error before exiting with status 1.
+ *
+ * @see LRFU.java
+ * @author Steven Montalbano
+ */
+public class LRFUCheck {
+
+	private static final String[] WORKLOADS = { 	// Hot sets that move, so recency and frequency disagree
+			"zipf:60:512:0.8,loop:20:300,uniform:20:5000,count=30k,seed=5",
+			"loop:70:150,zipf:30:2000:1.1,stores=0.4,phase=7k,count=30k,seed=17",
+			"scan:30:1000,zipf:70:256:0.7,stores=0.2,phase=5k,count=30k,seed=41" };
+	private static final int[] FRAMES = { 1, 4, 37, 100 };
+	private static final double[] LAMBDA = { 0.1, 0.01, 0.001 };
+	private static final long[] DECAY = { 0, 5000 };
+
+	public static void main(String[] args) throws IOException {
+		for (String workload : WORKLOADS) {
+			for (int frames : FRAMES) {
+				for (double lambda : LAMBDA) {
+					for (long decay : DECAY) {
+						LRFU alg = new LRFU(frames, TraceReader.DEFAULT_PAGES, lambda);
+						alg.setDecay(decay);
+						alg.sim(new TraceGenerator(workload));
+						check(workload, frames, "--lambda " + lambda + " --decay " + decay,
+								reference(new TraceGenerator(workload), frames, lambda, decay),
+								new long[] { alg.getPageFaults(), alg.getDiskWrites() });
+					}
+				}
+
+				LRFU alg = new LRFU(frames, TraceReader.DEFAULT_PAGES, 1);
+				alg.sim(new TraceGenerator(workload));
+				LRU lru = new LRU(frames, TraceReader.DEFAULT_PAGES);
+				lru.sim(new TraceGenerator(workload));
+				check(workload, frames, "--lambda 1 against LRU", new long[] { lru.getPageFaults(), lru.getDiskWrites() },
+						new long[] { alg.getPageFaults(), alg.getDiskWrites() });
+			}
+		}
+	}
+
+	private static void check(String workload, int frames, String run, long[] expected, long[] actual) {
+		if (!Arrays.equals(expected, actual)) {
+			System.err.printf("MISMATCH %s -n %d %s: faults %d, writes %d; expected faults %d, writes %d\n", workload,
+					frames, run, actual[0], actual[1], expected[0], expected[1]);
+			System.exit(1);
+		}
+		System.out.printf("ok %s -n %d %s: faults %d, writes %d\n", workload, frames, run, actual[0], actual[1]);
+	}
+
+	/**
+	 * Simulates LRFU by brute force
+	 *
+	 * @param trace  the memory accesses
+	 * @param frames the number of frames of RAM
+	 * @param lambda the weight decay rate of an access
+	 * @param decay  the number of memory accesses between CRF halvings, or 0
+	 * @return the page faults and writes to disk
+	 */
+	private static long[] reference(TraceReader trace, int frames, double lambda, long decay) throws IOException {
+		double step = Math.pow(2, -lambda); 	// The decay of a CRF over one memory access
+		Map<Long, double[]> crf = new HashMap<>(); 	// Page -> { its CRF now }
+		Set<Long> dirty = new HashSet<>();
+		long faults = 0, writes = 0, accesses = 0;
+
+		while (trace.next()) {
+			long page = trace.vpn();
+			if (trace.isStore())
+				dirty.add(page);
+
+			for (double[] c : crf.values())
+				c[0] *= step;
+
+			double[] c = crf.get(page);
+			if (c != null) {
+				c[0] += 1;
+			} else {
+				faults++;
+				if (crf.size() == frames) {
+					long victim = 0;
+					double min = Double.POSITIVE_INFINITY;
+					for (Map.Entry<Long, double[]> e : crf.entrySet()) {
+						if (e.getValue()[0] < min) {
+							victim = e.getKey();
+							min = e.getValue()[0];
+						}
+					}
+					crf.remove(victim);
+					if (dirty.remove(victim))
+						writes++;
+				}
+				crf.put(page, new double[] { 1 });
+			}
+
+			if (decay > 0 && ++accesses % decay == 0)
+				for (double[] d : crf.values())
+					d[0] *= 0.5;
+		}
+		return new long[] { faults, writes };
+	}
+}
@@ -0,0 +1,70 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checks the average working set size WSClock reports against a brute force
+ * count on synthetic workloads. At every point in virtual time t the count
+ * collects the distinct pages of the accesses in (t - tau, t] into a set, so
+ * it shares none of WSClock's per page bookkeeping. The average of the counts
+ * over every point must match exactly for every workload and window.
+ *
+ * Lives in checks/, outside the simulator sources, and is compiled and run
+ * by tests.sh. Prints one line per run to standard output, and the first
+ * mismatch to standard error before exiting with status 1.
+ *
+ * @see WSClock.java
+ * @author Steven Montalbano
+ */
+public class WSClockCheck {
+
+	private static final String[] WORKLOADS = { 	// Working sets that grow, shrink and move
+			"zipf:60:512:0.8,loop:20:300,uniform:20:5000,count=20k,seed=5",
+			"loop:70:150,zipf:30:2000:1.1,stores=0.4,phase=7k,count=20k,seed=17" };
+	private static final int FRAMES = 64;
+	private static final long[] TAU = { 1, 10, 64, 1000, 50000 }; // The last is longer than the trace
+
+	public static void main(String[] args) throws IOException {
+		for (String workload : WORKLOADS) {
+			for (long tau : TAU) {
+				WSClock alg = new WSClock(FRAMES, TraceReader.DEFAULT_PAGES);
+				alg.setWindow(tau);
+				alg.sim(new TraceGenerator(workload));
+				double expected = reference(new TraceGenerator(workload), tau);
+				double actual = alg.getAverageWorkingSet();
+
+				if (expected != actual) {
+					System.err.printf("MISMATCH %s --tau %d: average working set %.6f; expected %.6f\n", workload, tau,
+							actual, expected);
+					System.exit(1);
+				}
+				System.out.printf("ok %s --tau %d: average working set %.6f\n", workload, tau, actual);
+			}
+		}
+	}
+
+	/**
+	 * Counts the working set at every point in virtual time by brute force
+	 *
+	 * @param trace the memory accesses
+	 * @param tau   the working set window in memory accesses
+	 * @return the average number of distinct pages accessed within the last tau
+	 *         accesses
+	 */
+	private static double reference(TraceReader trace, long tau) throws IOException {
+		List<Long> pages = new ArrayList<>();
+		while (trace.next())
+			pages.add(trace.vpn());
+
+		long sum = 0;
+		for (int t = 0; t < pages.size(); t++) {
+			Set<Long> window = new HashSet<>();
+			for (long s = Math.max(0, t - tau + 1); s <= t; s++)
+				window.add(pages.get((int) s));
+			sum += window.size();
+		}
+		return pages.isEmpty() ? 0 : (double) sum / pages.size();
+	}
+}
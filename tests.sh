@@ -1,54 +1,9 @@
-
-echo "=======SWIM / LRU========"
-./vmsim.sh -n 8 -a lru swim.trace
-./vmsim.sh -n 16 -a lru swim.trace
-./vmsim.sh -n 32 -a lru swim.trace
-./vmsim.sh -n 64 -a lru swim.trace
-
-echo "=======SWIM / OPT========"
-./vmsim.sh -n 8 -a opt swim.trace
-./vmsim.sh -n 16 -a opt swim.trace
-./vmsim.sh -n 32 -a opt swim.trace
-./vmsim.sh -n 64 -a opt swim.trace
-
-echo "=======SWIM / SECOND========"
-./vmsim.sh -n 8 -a second swim.trace
-./vmsim.sh -n 16 -a second swim.trace
-./vmsim.sh -n 32 -a second swim.trace
-./vmsim.sh -n 64 -a second swim.trace
-
-echo "=======GCC / LRU========"
-./vmsim.sh -n 8 -a lru gcc.trace
-./vmsim.sh -n 16 -a lru gcc.trace
-./vmsim.sh -n 32 -a lru gcc.trace
-./vmsim.sh -n 64 -a lru gcc.trace
-
-echo "=======GCC / OPT========"
-./vmsim.sh -n 8 -a opt gcc.trace
-./vmsim.sh -n 16 -a opt gcc.trace
-./vmsim.sh -n 32 -a opt gcc.trace
-./vmsim.sh -n 64 -a opt gcc.trace
-
-echo "=======GCC / SECOND========"
-./vmsim.sh -n 8 -a second gcc.trace
-./vmsim.sh -n 16 -a second gcc.trace
-./vmsim.sh -n 32 -a second gcc.trace
-./vmsim.sh -n 64 -a second gcc.trace
-
-echo "=======GZIP / LRU========"
-./vmsim.sh -n 8 -a lru gzip.trace
-./vmsim.sh -n 16 -a lru gzip.trace
-./vmsim.sh -n 32 -a lru gzip.trace
-./vmsim.sh -n 64 -a lru gzip.trace
-
-echo "=======GZIP / OPT========"
-./vmsim.sh -n 8 -a opt gzip.trace
-./vmsim.sh -n 16 -a opt gzip.trace
-./vmsim.sh -n 32 -a opt gzip.trace
-./vmsim.sh -n 64 -a opt gzip.trace
-
-echo "=======GZIP / SECOND========"
-./vmsim.sh -n 8 -a second gzip.trace
-./vmsim.sh -n 16 -a second gzip.trace
-./vmsim.sh -n 32 -a second gzip.trace
-./vmsim.sh -n 64 -a second gzip.trace
+# Checks the algorithms in checks/ against brute force models of their policies,
+# then runs every algorithm at 8, 16, 32 and 64 frames on the swim, gcc and gzip
+# traces in one JVM; each trace is decoded once and the simulations run in parallel
+javac *.java
+javac -cp . -d checks checks/*.java 	# The reference checks are not part of the simulator
+for check in checks/*Check.java; do
+	java -cp .:checks "$(basename "$check" .java)" > /dev/null || exit 1
+done
+java VMSim sweep -n 8,16,32,64 -a lru,opt,second,arc,lirs,clockpro,wsclock,aging,lfu,lrfu swim.trace gcc.trace gzip.trace